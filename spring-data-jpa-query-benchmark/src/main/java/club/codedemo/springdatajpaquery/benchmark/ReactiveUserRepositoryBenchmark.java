@@ -0,0 +1,111 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.repository.ReactiveUserRepository;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import club.codedemo.springdatajpaquery.service.UserRepositoryAsync;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应式(R2DBC)与阻塞(JPA)读取在高并发下的对比
+ * 每次调用同时发出 concurrency 个按状态查询用户的请求，等待全部完成，JPA 与 R2DBC 的连接池大小相同(10)：
+ * threadPerRequest 模拟每个请求占用一个线程的 Servlet 模型，线程数与并发数相同，多数线程阻塞在获取连接上；
+ * async 通过 UserRepositoryAsync 在与连接数相同的线程中排队执行；
+ * reactive 通过 ReactiveUserRepository 发出全部请求，不额外创建线程，请求在 R2DBC 连接池中排队。
+ * 对比每批请求的耗时及 gc.alloc.rate.norm：
+ * java -jar target/benchmarks.jar ReactiveUserRepositoryBenchmark -prof gc -p users=100000 -p concurrency=1024,4096
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReactiveUserRepositoryBenchmark {
+
+    /**
+     * 每批同时发出的请求数
+     */
+    @Param({"1024"})
+    public int concurrency;
+
+    private UserRepository userRepository;
+
+    private ReactiveUserRepository reactiveUserRepository;
+
+    private UserRepositoryAsync userRepositoryAsync;
+
+    private ExecutorService threadPerRequestExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp(UserRepositoryState state) {
+        this.userRepository = state.userRepository;
+        this.reactiveUserRepository = state.context.getBean(ReactiveUserRepository.class);
+        // 队列须能容纳一整批请求
+        this.userRepositoryAsync = new UserRepositoryAsync(state.userRepository, state.context.getBean(DataSource.class),
+                0, this.concurrency, false);
+        this.threadPerRequestExecutor = Executors.newFixedThreadPool(this.concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.userRepositoryAsync.destroy();
+        this.threadPerRequestExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long threadPerRequest() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(this.concurrency);
+        for (int i = 0; i < this.concurrency; i++) {
+            int status = i % 100;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> this.userRepository.findUserByStatusUsingJPQL(status).size(), this.threadPerRequestExecutor));
+        }
+        return join(futures);
+    }
+
+    @Benchmark
+    public long async() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(this.concurrency);
+        for (int i = 0; i < this.concurrency; i++) {
+            futures.add(this.userRepositoryAsync.findUserByStatusUsingJPQL(i % 100).thenApply(List::size));
+        }
+        return join(futures);
+    }
+
+    @Benchmark
+    public long reactive() {
+        return Flux.range(0, this.concurrency)
+                .flatMap(i -> this.reactiveUserRepository.findUserByStatus(i % 100).count(), this.concurrency)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private static long join(List<CompletableFuture<Integer>> futures) {
+        long count = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            count += future.join();
+        }
+        return count;
+    }
+}
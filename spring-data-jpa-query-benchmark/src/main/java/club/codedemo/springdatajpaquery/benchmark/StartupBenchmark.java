@@ -0,0 +1,58 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.SpringDataJpaQueryApplication;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动耗时
+ * 每次在新的 JVM 中启动一次应用(不含 Web 层)：ready 测量启动至就绪的耗时，firstQuery 测量启动至第一次查询返回的耗时。
+ * 对比默认配置与 fast-startup：
+ * java -jar target/benchmarks.jar StartupBenchmark -p profile=default,fast-startup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = "-Xmx1g")
+public class StartupBenchmark {
+
+    @Param({"default", "fast-startup"})
+    public String profile;
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SpringDataJpaQueryApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(this.profile)
+                .properties("spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    @Benchmark
+    public void ready() {
+        this.start().close();
+    }
+
+    @Benchmark
+    public Object firstQuery() {
+        try (ConfigurableApplicationContext context = this.start()) {
+            return context.getBean(UserRepository.class).findById(1L).orElse(null);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.SpringDataJpaQueryApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步接口与异步门面(UserRepositoryAsync)的负载测试
+ * 启动完整的 Web 应用，Tomcat 线程数(tomcatThreads)大于 Hikari 连接数(connections)，
+ * 每组中 64 个线程持续请求按状态查询用户的接口，另有 4 个线程请求不访问数据库的 /actuator/health：
+ * blocking 组请求 /users/status/1，等待数据库期间占用 Tomcat 线程；async 组请求 /users/async/status/1，等待期间释放 Tomcat 线程。
+ * 对比两组中查询接口的吞吐量，以及 health 接口在数据库繁忙时的吞吐量和延迟：
+ * java -jar target/benchmarks.jar UserControllerLoadBenchmark -p users=100000 -p tomcatThreads=20,200
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserControllerLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WebState {
+
+        @Param({"100000"})
+        public int users;
+
+        @Param({"20"})
+        public int tomcatThreads;
+
+        @Param({"10"})
+        public int connections;
+
+        public ConfigurableApplicationContext context;
+
+        public String baseUrl;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.context = new SpringApplicationBuilder(SpringDataJpaQueryApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .properties("server.port=0",
+                            "server.tomcat.threads.max=" + this.tomcatThreads,
+                            "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                            "spring.datasource.hikari.maximum-pool-size=" + this.connections,
+                            "spring.jpa.open-in-view=false",
+                            "codedemo.user-query-cache.enabled=false",
+                            "logging.level.root=WARN")
+                    .run();
+            this.baseUrl = "http://localhost:" + this.context.getEnvironment().getProperty("local.server.port");
+
+            JdbcTemplate jdbcTemplate = this.context.getBean(JdbcTemplate.class);
+            jdbcTemplate.update("INSERT INTO user (name, status, email) " +
+                    "SELECT CONCAT('user', X), MOD(X, 100), CONCAT('user', X, '@codedemo.club') FROM SYSTEM_RANGE(6, ?)", this.users);
+            jdbcTemplate.execute("ANALYZE");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.context.close();
+        }
+
+        /**
+         * 发送 GET 请求并读取完整的响应
+         * @return 响应的字节数
+         */
+        public long get(String path) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + path).openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(60000);
+            if (connection.getResponseCode() != 200) {
+                throw new IllegalStateException(path + " returned " + connection.getResponseCode());
+            }
+            long length = 0;
+            byte[] buffer = new byte[8192];
+            try (InputStream inputStream = connection.getInputStream()) {
+                for (int read; (read = inputStream.read(buffer)) != -1; ) {
+                    length += read;
+                }
+            }
+            return length;
+        }
+    }
+
+    @Benchmark
+    @Group("blocking")
+    @GroupThreads(64)
+    public long blockingQuery(WebState state) throws IOException {
+        return state.get("/users/status/1");
+    }
+
+    @Benchmark
+    @Group("blocking")
+    @GroupThreads(4)
+    public long blockingHealth(WebState state) throws IOException {
+        return state.get("/actuator/health");
+    }
+
+    @Benchmark
+    @Group("async")
+    @GroupThreads(64)
+    public long asyncQuery(WebState state) throws IOException {
+        return state.get("/users/async/status/1");
+    }
+
+    @Benchmark
+    @Group("async")
+    @GroupThreads(4)
+    public long asyncHealth(WebState state) throws IOException {
+        return state.get("/actuator/health");
+    }
+}
@@ -0,0 +1,86 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Criteria 查询编译结果缓存的微基准测试
+ * rebuildCriteria 与缓存前的 findUserByEmailsUsingCriteria 相同，每次调用都重新构建 Criteria 并由 Hibernate 渲染、解析；
+ * cachedCompiledQuery 调用当前的 findUserByEmailsUsingCriteria，同一形态的查询只构建一次，之后仅绑定参数。
+ * 数据表很小，耗时以查询构建为主，对比 CPU 耗时及 gc.alloc.rate.norm：
+ * java -jar target/benchmarks.jar UserCriteriaBenchmark -prof gc -p users=1000 -p emails=1,8,64
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserCriteriaBenchmark {
+
+    @Param({"8"})
+    public int emails;
+
+    private EntityManager entityManager;
+
+    private Set<String> values;
+
+    @Setup(Level.Trial)
+    public void setUp(UserRepositoryState state) {
+        this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                state.context.getBean(EntityManagerFactory.class));
+        this.values = new HashSet<>();
+        for (int i = 0; i < this.emails; i++) {
+            this.values.add("user" + (i * 7 + 6) + "@codedemo.club");
+        }
+    }
+
+    @Benchmark
+    public List<User> rebuildCriteria() {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+
+        Path<String> emailPath = user.get("email");
+
+        List<Predicate> predicates = new ArrayList<>();
+        for (String email : this.values) {
+            predicates.add(cb.like(emailPath, email));
+        }
+        query.select(user)
+                .where(cb.or(predicates.toArray(new Predicate[predicates.size()])));
+
+        return this.entityManager.createQuery(query)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<User> cachedCompiledQuery(UserRepositoryState state) {
+        return state.userRepository.findUserByEmailsUsingCriteria(this.values);
+    }
+}
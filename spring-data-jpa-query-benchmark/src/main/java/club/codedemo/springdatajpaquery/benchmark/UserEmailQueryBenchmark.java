@@ -0,0 +1,59 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 9.4 邮箱集合查询的两种写法
+ * like 调用 findUserByEmailsUsingCriteria(每个邮箱一个 LIKE 条件，以 OR 连接，无法使用索引)，
+ * indexed 调用 findUserByEmailsUsingIndexedCriteria(精确匹配使用 IN，前缀使用范围条件，均可使用 idx_user_email)。
+ * 传入的邮箱一半存在、一半不存在：
+ * java -jar target/benchmarks.jar UserEmailQueryBenchmark -p users=50000 -p emails=10,1000,50000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserEmailQueryBenchmark {
+
+    @Param({"1000"})
+    public int emails;
+
+    private Set<String> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.values = new HashSet<>();
+        for (int i = 0; i < this.emails; i++) {
+            this.values.add(i % 2 == 0 ? "user" + i + "@codedemo.club" : "nobody" + i + "@codedemo.club");
+        }
+    }
+
+    @Benchmark
+    public List<User> like(UserRepositoryState state) {
+        return state.userRepository.findUserByEmailsUsingCriteria(this.values);
+    }
+
+    @Benchmark
+    public List<User> indexed(UserRepositoryState state) {
+        return state.userRepository.findUserByEmailsUsingIndexedCriteria(this.values);
+    }
+}
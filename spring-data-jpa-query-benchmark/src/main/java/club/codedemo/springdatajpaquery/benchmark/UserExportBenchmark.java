@@ -0,0 +1,56 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.service.UserExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全表导出为 JSON 的对比
+ * findAllThenSerialize 与原有的导出方式相同，findAll(Sort) 加载全部实体后整体序列化；
+ * streamingExport 通过 UserExportService 逐行查询、逐行写出。输出写入丢弃内容的流，对比耗时及 gc.alloc.rate.norm：
+ * java -jar target/benchmarks.jar UserExportBenchmark -prof gc -p users=100000,1000000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserExportBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Benchmark
+    public int findAllThenSerialize(UserRepositoryState state) throws IOException {
+        List<User> users = state.userRepository.findAll(Sort.by("id"));
+        OBJECT_MAPPER.writeValue(NULL_OUTPUT_STREAM, users);
+        return users.size();
+    }
+
+    @Benchmark
+    public long streamingExport(UserRepositoryState state) throws IOException {
+        return state.context.getBean(UserExportService.class).export(UserExportService.Format.JSON, NULL_OUTPUT_STREAM);
+    }
+}
@@ -0,0 +1,49 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummary;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体查询与投影查询的内存分配对比
+ * 对比 gc.alloc.rate.norm(每次调用分配的字节数)：
+ * java -jar target/benchmarks.jar UserProjectionBenchmark -prof gc -p users=10000,100000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserProjectionBenchmark {
+
+    @Benchmark
+    public List<User> findUserByStatusUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusUsingJPQL(1);
+    }
+
+    @Benchmark
+    public List<UserSummary> findUserSummaryByStatusUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserSummaryByStatusUsingJPQL(1);
+    }
+
+    @Benchmark
+    public List<User> findAllUsersSortUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUsersSortUsingJPQL(Sort.by("name"));
+    }
+
+    @Benchmark
+    public List<UserSummaryDto> findAllUserSummariesSortUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUserSummariesSortUsingJPQL(Sort.by("name"));
+    }
+}
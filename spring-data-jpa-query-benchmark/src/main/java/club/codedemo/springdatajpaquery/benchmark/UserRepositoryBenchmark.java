@@ -0,0 +1,209 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserRepository 各查询写法的基准测试
+ * 同一查询的 JPQL / Native、索引参数 / 命名参数、Sort / JpaSort.unsafe、Criteria 等写法两两对照。
+ * Throughput 给出吞吐量，SampleTime 给出 p50/p90/p99 等延迟分位数，加上 -prof gc 可得到每次调用的内存分配量：
+ * java -jar target/benchmarks.jar UserRepositoryBenchmark -prof gc -p users=10000,100000,1000000
+ * 注意：findAll*Sort* 等方法返回整张表，用户数较多时请调大 -Xmx 或用 -e 排除
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserRepositoryBenchmark {
+
+    private Pageable middlePage;
+
+    private long middleId;
+
+    private Collection<String> names;
+
+    private Set<String> emails;
+
+    @Setup(Level.Trial)
+    public void setUp(UserRepositoryState state) {
+        this.middlePage = PageRequest.of(state.users / 2 / 20, 20);
+        this.middleId = state.middleId();
+        this.names = new ArrayList<>();
+        this.emails = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            this.names.add("user" + (state.users / 10 * i + 6));
+            this.emails.add("user" + (state.users / 10 * i + 6) + "@codedemo.club");
+        }
+    }
+
+    /*
+     * 2 JPQL 与 Native
+     */
+
+    @Benchmark
+    public Collection<User> findAllActiveUsersUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllActiveUsersUsingJPQL();
+    }
+
+    @Benchmark
+    public Collection<User> findAllActiveUsersUsingNative(UserRepositoryState state) {
+        return state.userRepository.findAllActiveUsersUsingNative();
+    }
+
+    /*
+     * 3 Sort 与 JpaSort.unsafe
+     */
+
+    @Benchmark
+    public List<User> findAllUsersSortUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUsersSortUsingJPQL(Sort.by("name"));
+    }
+
+    @Benchmark
+    public List<User> findAllUsersSortUnsafeUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUsersSortUsingJPQL(JpaSort.unsafe("LENGTH(name)"));
+    }
+
+    /*
+     * 4 分页：OFFSET 与 键集
+     */
+
+    @Benchmark
+    public Object findAllUsersWithPaginationUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUsersWithPaginationUsingJPQL(this.middlePage);
+    }
+
+    @Benchmark
+    public Object findAllUsersWithPaginationUsingNative(UserRepositoryState state) {
+        return state.userRepository.findAllUsersWithPaginationUsingNative(this.middlePage);
+    }
+
+    @Benchmark
+    public Object findAllUsersWithPaginationUsingNativeBeforeJPA2_0_4(UserRepositoryState state) {
+        return state.userRepository.findAllUsersWithPaginationUsingNativeBeforeJPA2_0_4(this.middlePage);
+    }
+
+    @Benchmark
+    public Object findAllUsersAfterIdUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findAllUsersAfterIdUsingJPQL(this.middleId, PageRequest.of(0, 20));
+    }
+
+    /*
+     * 5 索引参数 与 6 命名参数
+     */
+
+    @Benchmark
+    public List<User> findUserByStatusUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusUsingJPQL(1);
+    }
+
+    @Benchmark
+    public List<User> findUserByStatusUsingNative(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusUsingNative(1);
+    }
+
+    @Benchmark
+    public List<User> findUserByStatusAndNameUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusAndNameUsingJPQL(1, "zhangsan");
+    }
+
+    @Benchmark
+    public List<User> findUserByStatusAndNameNamedParamsUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusAndNameNamedParamsUsingJPQL(1, "zhangsan");
+    }
+
+    @Benchmark
+    public List<User> findUserByStatusAndNameNamedParamsUsingNative(UserRepositoryState state) {
+        return state.userRepository.findUserByStatusAndNameNamedParamsUsingNative(1, "zhangsan");
+    }
+
+    /*
+     * 7 集合参数 与 9 Criteria
+     */
+
+    @Benchmark
+    public List<User> findUserByNameListUsingJPQL(UserRepositoryState state) {
+        return state.userRepository.findUserByNameListUsingJPQL(this.names);
+    }
+
+    @Benchmark
+    public List<User> findUserByEmailsUsingCriteria(UserRepositoryState state) {
+        return state.userRepository.findUserByEmailsUsingCriteria(this.emails);
+    }
+
+    @Benchmark
+    public List<User> findUserByEmailsUsingIndexedCriteria(UserRepositoryState state) {
+        return state.userRepository.findUserByEmailsUsingIndexedCriteria(this.emails);
+    }
+
+    /*
+     * 8 更新及插入，在回滚的事务中执行
+     */
+
+    @Benchmark
+    public Integer updateUserSetStatusForNameUsingJPQL(UserRepositoryState state) {
+        return state.rollbackTransaction.execute(status -> {
+            status.setRollbackOnly();
+            return state.userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan");
+        });
+    }
+
+    @Benchmark
+    public Integer updateUserSetStatusForNameUsingNative(UserRepositoryState state) {
+        return state.rollbackTransaction.execute(status -> {
+            status.setRollbackOnly();
+            return state.userRepository.updateUserSetStatusForNameUsingNative(0, "zhangsan");
+        });
+    }
+
+    @Benchmark
+    public void insertUserUsingNative(UserRepositoryState state) {
+        state.rollbackTransaction.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            state.userRepository.insertUserUsingNative("liuba", 13, "123456@123456.com");
+        });
+    }
+
+    /**
+     * 通过 JPA 插入100个用户并 flush，对比 JDBC 批处理等配置的效果(-p profile=default,high-throughput)
+     */
+    @Benchmark
+    public void saveAllUsers(UserRepositoryState state) {
+        state.rollbackTransaction.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            List<User> users = new ArrayList<>(100);
+            for (int i = 0; i < 100; i++) {
+                User user = new User();
+                user.setName("save" + i);
+                user.setStatus(i % 100);
+                user.setEmail("save" + i + "@codedemo.club");
+                users.add(user);
+            }
+            state.userRepository.saveAll(users);
+            state.userRepository.flush();
+        });
+    }
+}
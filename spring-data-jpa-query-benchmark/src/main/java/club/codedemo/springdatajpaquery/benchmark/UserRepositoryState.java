@@ -0,0 +1,85 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.SpringDataJpaQueryApplication;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 基准测试的共享状态
+ * 启动不含 Web 层的应用，连接内嵌 H2 数据库，并生成指定数量的用户：
+ * 第 X 个用户的姓名为 userX，邮箱为 userX@codedemo.club，状态为 X % 100，即每种状态约占 1%
+ */
+@State(Scope.Benchmark)
+public class UserRepositoryState {
+
+    /**
+     * 用户数，可通过 -p users=10000,100000,1000000,10000000 指定
+     */
+    @Param({"10000"})
+    public int users;
+
+    /**
+     * 启动应用时激活的 Spring profile，可通过 -p profile=xxx 指定
+     */
+    @Param({"default"})
+    public String profile;
+
+    public ConfigurableApplicationContext context;
+
+    public UserRepository userRepository;
+
+    public JdbcTemplate jdbcTemplate;
+
+    /**
+     * 执行后回滚的事务，用于写操作，保证每次执行前数据保持不变
+     */
+    public TransactionTemplate rollbackTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = new SpringApplicationBuilder(SpringDataJpaQueryApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(this.profile)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        // 基准测试的是数据库查询本身，关闭查询结果缓存
+                        "codedemo.user-query-cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        this.userRepository = this.context.getBean(UserRepository.class);
+        this.jdbcTemplate = this.context.getBean(JdbcTemplate.class);
+
+        PlatformTransactionManager transactionManager = this.context.getBean(PlatformTransactionManager.class);
+        this.rollbackTransaction = new TransactionTemplate(transactionManager);
+        this.rollbackTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // data.sql 中已有5个用户
+        this.jdbcTemplate.update("INSERT INTO user (name, status, email) " +
+                "SELECT CONCAT('user', X), MOD(X, 100), CONCAT('user', X, '@codedemo.club') FROM SYSTEM_RANGE(6, ?)", this.users);
+        this.jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    /**
+     * 位于数据表中间位置的 id，用于深分页
+     */
+    public long middleId() {
+        return this.jdbcTemplate.queryForObject("SELECT id FROM user ORDER BY id LIMIT 1 OFFSET ?", Long.class, this.users / 2);
+    }
+}
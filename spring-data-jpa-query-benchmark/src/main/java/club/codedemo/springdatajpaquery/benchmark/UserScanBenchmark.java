@@ -0,0 +1,58 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.service.UserPartitionedScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分区扫描全部用户的耗时随线程数的变化
+ * 处理器只累加邮箱长度，耗时以读取为主；线程数超过连接池允许的最大值(默认8)时按最大值执行：
+ * java -jar target/benchmarks.jar UserScanBenchmark -p users=1000000 -p parallelism=1,2,4,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserScanBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private UserPartitionedScanner scanner;
+
+    private final AtomicLong jobs = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp(UserRepositoryState state) {
+        this.scanner = state.context.getBean(UserPartitionedScanner.class);
+    }
+
+    @Benchmark
+    public long scan() {
+        AtomicLong emails = new AtomicLong();
+        this.scanner.scan("benchmark-" + this.jobs.incrementAndGet(), this.parallelism, users -> {
+            long length = 0;
+            for (User user : users) {
+                length += user.getEmail().length();
+            }
+            emails.addAndGet(length);
+        });
+        return emails.get();
+    }
+}
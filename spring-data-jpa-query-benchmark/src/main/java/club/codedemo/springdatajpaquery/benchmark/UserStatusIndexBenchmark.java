@@ -0,0 +1,70 @@
+package club.codedemo.springdatajpaquery.benchmark;
+
+import club.codedemo.springdatajpaquery.cache.UserStatusIndex;
+import club.codedemo.springdatajpaquery.repository.UserChangeRepository;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存状态索引(UserStatusIndex)与经由数据库查询的对比
+ * 按 id 判断用户是否有效、按状态查询全部 id；加载完成后打印索引占用的内存：
+ * java -jar target/benchmarks.jar UserStatusIndexBenchmark -prof gc -p users=100000,1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserStatusIndexBenchmark {
+
+    private UserRepository userRepository;
+
+    private UserStatusIndex userStatusIndex;
+
+    private long middleId;
+
+    @Setup(Level.Trial)
+    public void setUp(UserRepositoryState state) {
+        this.userRepository = state.userRepository;
+        this.userStatusIndex = new UserStatusIndex(state.jdbcTemplate, state.context.getBean(UserChangeRepository.class));
+        this.userStatusIndex.reload();
+        this.middleId = state.middleId();
+        System.out.printf("%nUserStatusIndex: %d users, %d bytes%n",
+                this.userStatusIndex.size(), this.userStatusIndex.memoryBytes());
+    }
+
+    @Benchmark
+    public boolean isActiveUsingIndex() {
+        return this.userStatusIndex.isActive(this.middleId);
+    }
+
+    @Benchmark
+    public boolean isActiveUsingRepository() {
+        return this.userRepository.findById(this.middleId)
+                .map(user -> user.getStatus() != null && user.getStatus() == UserStatusIndex.ACTIVE)
+                .orElse(false);
+    }
+
+    @Benchmark
+    public int findIdsByStatusUsingIndex() {
+        return this.userStatusIndex.findIdsByStatus(UserStatusIndex.ACTIVE).length;
+    }
+
+    @Benchmark
+    public int findIdsByStatusUsingRepository() {
+        return this.userRepository.findUserByStatusUsingJPQL(UserStatusIndex.ACTIVE).size();
+    }
+}
@@ -0,0 +1,131 @@
+package club.codedemo.springdatajpaquery.cache;
+
+/**
+ * long 开放寻址哈希集合
+ * 与 LongIntHashMap 相同的线性探测结构，只保存键，每个槽位 8 字节；键 0 表示空槽位，不能加入集合。非线程安全
+ */
+class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeThreshold;
+
+    LongHashSet(int expectedSize) {
+        this.allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    boolean contains(long key) {
+        for (int slot = LongIntHashMap.slot(key, this.mask); ; slot = (slot + 1) & this.mask) {
+            long current = this.keys[slot];
+            if (current == key) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return 集合中原先是否不包含该键
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        int slot = LongIntHashMap.slot(key, this.mask);
+        for (; this.keys[slot] != 0; slot = (slot + 1) & this.mask) {
+            if (this.keys[slot] == key) {
+                return false;
+            }
+        }
+        this.keys[slot] = key;
+        if (++this.size > this.resizeThreshold) {
+            this.rehash(this.keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return 集合中原先是否包含该键
+     */
+    boolean remove(long key) {
+        for (int slot = LongIntHashMap.slot(key, this.mask); ; slot = (slot + 1) & this.mask) {
+            long current = this.keys[slot];
+            if (current == 0) {
+                return false;
+            }
+            if (current == key) {
+                this.shiftKeys(slot);
+                this.size--;
+                return true;
+            }
+        }
+    }
+
+    private void shiftKeys(int slot) {
+        for (int next = (slot + 1) & this.mask; ; next = (next + 1) & this.mask) {
+            long key = this.keys[next];
+            if (key == 0) {
+                break;
+            }
+            int home = LongIntHashMap.slot(key, this.mask);
+            if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+                this.keys[slot] = key;
+                slot = next;
+            }
+        }
+        this.keys[slot] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        this.allocate(capacity);
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int slot = LongIntHashMap.slot(key, this.mask);
+                while (this.keys[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = key;
+            }
+        }
+    }
+
+    /**
+     * 集合中的全部键，顺序不固定
+     */
+    long[] toArray() {
+        long[] result = new long[this.size];
+        int i = 0;
+        for (long key : this.keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 键数组占用的字节数
+     */
+    long memoryBytes() {
+        return (long) this.keys.length * Long.BYTES;
+    }
+}
@@ -0,0 +1,158 @@
+package club.codedemo.springdatajpaquery.cache;
+
+/**
+ * long → int 开放寻址哈希表
+ * 键、值分别保存在 long[]、int[] 中(线性探测，负载因子不超过 0.75，删除时后移填补空位)，不创建 Long、Integer 等包装对象，
+ * 每个槽位 12 字节；键 0 表示空槽位，不能作为键使用。非线程安全
+ */
+class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeThreshold;
+
+    LongIntHashMap(int expectedSize) {
+        this.allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * 容纳 size 个键所需的槽位数，为2的幂次
+     */
+    static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * 将 long 键打散后映射到槽位
+     */
+    static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * @return 键对应的值，不存在时返回 defaultValue
+     */
+    int get(long key, int defaultValue) {
+        for (int slot = slot(key, this.mask); ; slot = (slot + 1) & this.mask) {
+            long current = this.keys[slot];
+            if (current == key) {
+                return this.values[slot];
+            }
+            if (current == 0) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * @return 原来的值，不存在时返回 defaultValue
+     */
+    int put(long key, int value, int defaultValue) {
+        if (key == 0) {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        int slot = slot(key, this.mask);
+        for (; this.keys[slot] != 0; slot = (slot + 1) & this.mask) {
+            if (this.keys[slot] == key) {
+                int previous = this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.resizeThreshold) {
+            this.rehash(this.keys.length << 1);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 defaultValue
+     */
+    int remove(long key, int defaultValue) {
+        for (int slot = slot(key, this.mask); ; slot = (slot + 1) & this.mask) {
+            long current = this.keys[slot];
+            if (current == 0) {
+                return defaultValue;
+            }
+            if (current == key) {
+                int previous = this.values[slot];
+                this.shiftKeys(slot);
+                this.size--;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * 删除 slot 后，将其后同一探测链上的键前移，保证查找时不会在空位提前结束
+     */
+    private void shiftKeys(int slot) {
+        for (int next = (slot + 1) & this.mask; ; next = (next + 1) & this.mask) {
+            long key = this.keys[next];
+            if (key == 0) {
+                break;
+            }
+            int home = slot(key, this.mask);
+            // home 不在 (slot, next] 之间(按环形计算)时，该键可以前移到 slot
+            if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+                this.keys[slot] = key;
+                this.values[slot] = this.values[next];
+                slot = next;
+            }
+        }
+        this.keys[slot] = 0;
+        this.values[slot] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key, this.mask);
+                while (this.keys[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = key;
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 键、值数组占用的字节数
+     */
+    long memoryBytes() {
+        return (long) this.keys.length * Long.BYTES + (long) this.values.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,86 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 二级缓存区域统计
+ * 访问 /actuator/cacheregions 查看每个缓存区域的命中、未命中、写入次数及命中率，据此调整 application.conf 中的缓存大小
+ */
+@Component
+@Endpoint(id = "cacheregions")
+public class SecondLevelCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SecondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        // 使用时才 unwrap：EntityManagerFactory 在后台构建时(fast-startup)，创建本 Bean 不必等待其构建完成
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, RegionStatistics> regions() {
+        Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, RegionStatistics> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            regions.put(regionName, new RegionStatistics(statistics.getDomainDataRegionStatistics(regionName)));
+        }
+        return regions;
+    }
+
+    /**
+     * 单个缓存区域的统计
+     */
+    public static class RegionStatistics {
+
+        private final long hitCount;
+
+        private final long missCount;
+
+        private final long putCount;
+
+        private final long elementCountInMemory;
+
+        RegionStatistics(CacheRegionStatistics statistics) {
+            this.hitCount = statistics.getHitCount();
+            this.missCount = statistics.getMissCount();
+            this.putCount = statistics.getPutCount();
+            this.elementCountInMemory = statistics.getElementCountInMemory();
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getPutCount() {
+            return putCount;
+        }
+
+        /**
+         * 内存中的缓存条数，缓存实现不支持时为 Long.MIN_VALUE
+         */
+        public long getElementCountInMemory() {
+            return elementCountInMemory;
+        }
+
+        /**
+         * 命中率，没有访问时为 0
+         */
+        public double getHitRatio() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 用户查询结果缓存
+ * 在 CaffeineCache 的基础上感知事务：
+ * 1. 清空缓存(数据表被修改)时，若存在事务，则在事务结束(提交或回滚)后再清空一次，避免缓存未提交或已回滚的数据；
+ * 2. 当前事务修改过数据表后，本事务中的查询不再读写缓存，直接查询数据库，保证读到本事务自己的修改；
+ * 3. 读写事务中的查询不读写缓存，返回受持久化上下文管理的实体，对实体的修改照常在提交时写入数据库，事务结束后清空缓存。
+ * 缓存中保存的是查询结果(User 集合)的不可变快照，每次命中返回新的 List 及新的 User 副本，
+ * 调用方对结果的排序、增删或修改实体都不会影响缓存及其它调用方。
+ * 注意：并发事务在修改提交前读到并缓存的旧数据，最多保留到 TTL 过期
+ */
+public class UserQueryCache implements Cache {
+
+    /**
+     * 缓存名称
+     */
+    public static final String NAME = "userQueries";
+
+    private final CaffeineCache delegate;
+
+    public UserQueryCache(CaffeineCache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return this.delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (this.isBypassed()) {
+            return null;
+        }
+        ValueWrapper wrapper = this.delegate.get(key);
+        return wrapper == null ? null : new SimpleValueWrapper(copyOf(wrapper.get()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        return this.isBypassed() ? null : (T) copyOf(this.delegate.get(key, type));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = this.get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        this.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!this.isBypassed()) {
+            this.delegate.put(key, snapshotOf(value));
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (this.isBypassed()) {
+            return null;
+        }
+        ValueWrapper existing = this.delegate.putIfAbsent(key, snapshotOf(value));
+        return existing == null ? null : new SimpleValueWrapper(copyOf(existing.get()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        this.delegate.evict(key);
+        this.markModifiedInCurrentTransaction();
+    }
+
+    @Override
+    public void clear() {
+        this.delegate.clear();
+        this.markModifiedInCurrentTransaction();
+    }
+
+    /**
+     * 是否跳过缓存：处于读写事务中，或当前事务修改过数据表
+     * 读写事务可能修改查询到的实体并在提交时写入数据库(不经过 @CacheEvict)，因此同样在事务结束后清空缓存
+     */
+    private boolean isBypassed() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            this.markModifiedInCurrentTransaction();
+            return true;
+        }
+        return this.isModifiedInCurrentTransaction();
+    }
+
+    /**
+     * 当前事务是否修改过数据表
+     */
+    private boolean isModifiedInCurrentTransaction() {
+        return TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.hasResource(this);
+    }
+
+    /**
+     * 标记当前事务修改过数据表，并在事务结束后清空缓存
+     */
+    private void markModifiedInCurrentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || this.isModifiedInCurrentTransaction()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(UserQueryCache.this);
+                delegate.clear();
+            }
+        });
+    }
+
+    /**
+     * 写入缓存的快照：复制查询结果中的每个 User，放入不可变 List
+     */
+    private static Object snapshotOf(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Collection)) {
+            throw new IllegalArgumentException("UserQueryCache 仅支持缓存 User 集合: " + value.getClass().getName());
+        }
+        List<User> users = new ArrayList<>(((Collection<?>) value).size());
+        for (Object user : (Collection<?>) value) {
+            if (!(user instanceof User)) {
+                throw new IllegalArgumentException("UserQueryCache 仅支持缓存 User 集合: " + user);
+            }
+            users.add(copyOf((User) user));
+        }
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * 返回给调用方的副本：可修改的 List 及新的 User
+     */
+    private static Object copyOf(Object snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        List<?> users = (List<?>) snapshot;
+        List<User> copy = new ArrayList<>(users.size());
+        for (Object user : users) {
+            copy.add(copyOf((User) user));
+        }
+        return copy;
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setStatus(user.getStatus());
+        copy.setEmail(user.getEmail());
+        return copy;
+    }
+}
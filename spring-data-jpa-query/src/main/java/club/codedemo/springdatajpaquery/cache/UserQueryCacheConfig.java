@@ -0,0 +1,54 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+
+/**
+ * 用户查询结果缓存配置
+ * 命中、未命中、淘汰等指标通过 /actuator/metrics/cache.gets、cache.evictions 等查看
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(UserQueryCacheProperties.class)
+public class UserQueryCacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(UserQueryCacheProperties properties) {
+        if (!properties.isEnabled()) {
+            return new NoOpCacheManager();
+        }
+        CaffeineCache cache = new CaffeineCache(UserQueryCache.NAME, Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build());
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Collections.singletonList(new UserQueryCache(cache)));
+        return cacheManager;
+    }
+
+    @Bean
+    public UserQueryKeyGenerator userQueryKeyGenerator() {
+        return new UserQueryKeyGenerator();
+    }
+
+    /**
+     * 为 UserQueryCache 注册 Caffeine 的缓存指标
+     */
+    @Bean
+    public CacheMeterBinderProvider<UserQueryCache> userQueryCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics(cache.getNativeCache(), cache.getName(), tags);
+    }
+}
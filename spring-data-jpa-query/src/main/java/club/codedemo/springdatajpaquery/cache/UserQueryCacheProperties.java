@@ -0,0 +1,51 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 用户查询结果缓存配置
+ */
+@ConfigurationProperties(prefix = "codedemo.user-query-cache")
+public class UserQueryCacheProperties {
+
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存的查询结果数
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * 查询结果写入缓存后的有效期
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(60);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+}
@@ -0,0 +1,37 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 用户查询结果缓存的键：方法名 + 参数
+ * 集合参数会被复制，避免调用方修改集合后缓存的键随之改变
+ */
+public class UserQueryKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Object[] elements = new Object[params.length + 1];
+        elements[0] = method.getName();
+        for (int i = 0; i < params.length; i++) {
+            elements[i + 1] = copy(params[i]);
+        }
+        return new SimpleKey(elements);
+    }
+
+    private static Object copy(Object param) {
+        if (param instanceof Set) {
+            return new HashSet<>((Set<?>) param);
+        }
+        if (param instanceof Collection) {
+            return new ArrayList<>((Collection<?>) param);
+        }
+        return param;
+    }
+}
@@ -0,0 +1,379 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import club.codedemo.springdatajpaquery.repository.QueryParameterChunks;
+import club.codedemo.springdatajpaquery.repository.UserChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户状态的内存索引
+ * 用于"用户是否激活"及"某状态的全部用户 id"两类高频查询，不访问数据库、不创建 User 实体，查询的键、值均为基本类型：
+ * id → 状态保存在 LongIntHashMap 中，每种状态的 id 另外保存在一个 LongHashSet 中。
+ * 启动后一次性加载全部用户，此后定时读取变更记录(user_change)增量更新，因此经由 UserRepository 的写入最多延迟一个刷新间隔可见。
+ * seq 在插入时分配，长事务(如批量插入)可能在更大的 seq 已被应用之后才提交，读取时跳过的 seq 记为空缺：
+ * 之后每次刷新重新查询空缺，出现的变更直接读取用户当前的状态(不按 seq 重放，避免旧状态覆盖新状态)；
+ * 超过 gap-timeout 仍未出现的空缺(事务回滚，或事务长于该时间)不再等待，由按 reload-interval 定时执行的全量加载兜底。
+ * 绕过 UserRepository 直接写表(不产生变更记录)后同样在下次全量加载时生效，也可手动调用 reload。
+ * 内存占用：哈希表的槽位数为2的幂次且负载因子不超过 0.75，每百万用户约 40MB：id → 状态 24MB(2^21 个槽位，12 字节/槽位)
+ * 加上各状态集合共约 16MB(8 字节/槽位)，实际占用见 memoryBytes；同样数量的 User 实体及持久化上下文需要数百 MB
+ */
+public class UserStatusIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatusIndex.class);
+
+    /**
+     * 用户不存在(或索引尚未加载)时 getStatus 的返回值
+     */
+    public static final int ABSENT = Integer.MIN_VALUE;
+
+    /**
+     * 状态为 null 的用户在索引中的值，这些用户不属于任何状态集合
+     */
+    public static final int NULL_STATUS = Integer.MIN_VALUE + 1;
+
+    /**
+     * 激活用户的状态
+     */
+    public static final int ACTIVE = 1;
+
+    /**
+     * 全量加载时，最近这些 seq 中尚不可见的视为空缺(可能属于未提交的事务)
+     */
+    static final int RELOAD_GAP_WINDOW = 1000;
+
+    /**
+     * 同时等待的空缺数上限，超过时改为全量加载
+     */
+    static final int MAX_PENDING_GAPS = 10_000;
+
+    private static final String LOAD_SQL = "SELECT id, status FROM user";
+
+    private static final String VISIBLE_SEQ_SQL = "SELECT seq FROM user_change WHERE seq > ? AND seq <= ? ORDER BY seq";
+
+    /**
+     * 查询已出现的空缺，并读取对应用户当前的状态；用户已删除时 u.id 为 null
+     */
+    private static final String FILLED_GAP_SQL = "SELECT c.seq, c.user_id, u.id, u.status FROM user_change c " +
+            "LEFT JOIN user u ON u.id = c.user_id WHERE c.seq IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final UserChangeRepository userChangeRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index(0);
+
+    private volatile long appliedSeq = -1;
+
+    /**
+     * 尚未出现的 seq → 放弃等待的时间，仅在 reload、refresh 中(持有本对象的锁)访问
+     */
+    private final TreeMap<Long, Long> pendingGaps = new TreeMap<>();
+
+    private final long gapTimeoutMillis;
+
+    public UserStatusIndex(JdbcTemplate jdbcTemplate, UserChangeRepository userChangeRepository) {
+        this(jdbcTemplate, userChangeRepository, 60_000);
+    }
+
+    /**
+     * @param gapTimeoutMillis 等待空缺 seq 出现的最长时间
+     */
+    public UserStatusIndex(JdbcTemplate jdbcTemplate, UserChangeRepository userChangeRepository, long gapTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userChangeRepository = userChangeRepository;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+    }
+
+    /**
+     * 用户的状态
+     * @return 状态；状态为 null 时返回 NULL_STATUS，用户不存在时返回 ABSENT
+     */
+    public int getStatus(long id) {
+        this.lock.readLock().lock();
+        try {
+            return this.index.statusById.get(id, ABSENT);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 用户是否存在且状态为1
+     */
+    public boolean isActive(long id) {
+        return this.getStatus(id) == ACTIVE;
+    }
+
+    /**
+     * 状态为 status 的全部用户 id，顺序不固定
+     */
+    public long[] findIdsByStatus(int status) {
+        this.lock.readLock().lock();
+        try {
+            LongHashSet ids = this.index.idsOf(status, false);
+            return ids == null ? new long[0] : ids.toArray();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 状态为 status 的用户数
+     */
+    public int countByStatus(int status) {
+        this.lock.readLock().lock();
+        try {
+            LongHashSet ids = this.index.idsOf(status, false);
+            return ids == null ? 0 : ids.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的用户数
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.statusById.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引数据占用的字节数(基本类型数组，不含对象头等固定开销)
+     */
+    public long memoryBytes() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.memoryBytes();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已应用的最大变更 seq，尚未加载时为 -1
+     */
+    public long getAppliedSeq() {
+        return this.appliedSeq;
+    }
+
+    /**
+     * 正在等待的空缺 seq 数
+     */
+    public synchronized int getPendingGapCount() {
+        return this.pendingGaps.size();
+    }
+
+    /**
+     * 重新加载全部用户
+     * 先记下当前最大的 seq 再读取数据表，之后应用该 seq 之后的变更，加载期间提交的修改不会丢失；
+     * 该 seq 之前尚未提交的变更记为空缺；新索引构建完成后才替换旧索引，加载期间查询不受影响
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        long seq = this.userChangeRepository.findLatestSeq();
+        Integer count = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Integer.class);
+        Index index = new Index(count == null ? 0 : count);
+        this.jdbcTemplate.query(LOAD_SQL, rs -> {
+            int status = rs.getInt(2);
+            index.apply(rs.getLong(1), rs.wasNull() ? NULL_STATUS : status);
+        });
+
+        this.pendingGaps.clear();
+        long[] expected = {Math.max(0, seq - RELOAD_GAP_WINDOW) + 1};
+        long deadline = start + this.gapTimeoutMillis;
+        this.jdbcTemplate.query(VISIBLE_SEQ_SQL, rs -> {
+            this.addGaps(expected[0], rs.getLong(1), deadline);
+            expected[0] = rs.getLong(1) + 1;
+        }, expected[0] - 1, seq);
+        this.addGaps(expected[0], seq + 1, deadline);
+
+        this.lock.writeLock().lock();
+        try {
+            this.index = index;
+            this.appliedSeq = seq;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        this.refresh();
+        logger.info("User status index loaded: {} users, {} bytes, {} ms",
+                this.size(), this.memoryBytes(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 定时全量加载，修正超时的空缺及绕过变更记录的写入；索引尚未加载时不做任何操作
+     */
+    @Scheduled(initialDelayString = "${codedemo.user-status-index.reload-interval-millis:3600000}",
+            fixedDelayString = "${codedemo.user-status-index.reload-interval-millis:3600000}")
+    public synchronized void scheduledReload() {
+        if (this.appliedSeq >= 0) {
+            this.reload();
+        }
+    }
+
+    /**
+     * 应用已出现的空缺及上次刷新之后的变更，索引尚未加载时不做任何操作
+     */
+    @Scheduled(initialDelayString = "${codedemo.user-status-index.refresh-interval-millis:1000}",
+            fixedDelayString = "${codedemo.user-status-index.refresh-interval-millis:1000}")
+    public synchronized void refresh() {
+        if (this.appliedSeq < 0) {
+            return;
+        }
+        this.fillGaps();
+        List<UserChange> changes;
+        do {
+            changes = this.userChangeRepository.findChangesSince(this.appliedSeq, UserChangeRepository.MAX_BATCH_SIZE);
+            if (changes.isEmpty()) {
+                break;
+            }
+            this.lock.writeLock().lock();
+            try {
+                for (UserChange change : changes) {
+                    this.index.apply(change.getUserId(), change.getOperation() == UserChange.Operation.DELETE ? ABSENT
+                            : change.getStatus() == null ? NULL_STATUS : change.getStatus());
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            long deadline = System.currentTimeMillis() + this.gapTimeoutMillis;
+            for (UserChange change : changes) {
+                this.addGaps(this.appliedSeq + 1, change.getSeq(), deadline);
+                this.appliedSeq = change.getSeq();
+            }
+        } while (changes.size() == UserChangeRepository.MAX_BATCH_SIZE);
+
+        if (this.pendingGaps.size() > MAX_PENDING_GAPS) {
+            logger.warn("User status index has {} pending seq gaps, reloading", this.pendingGaps.size());
+            this.reload();
+        }
+    }
+
+    /**
+     * 将 [from, to) 记为空缺；超过上限后不再记录，由 refresh 改为全量加载
+     */
+    private void addGaps(long from, long to, long deadline) {
+        for (long seq = from; seq < to && this.pendingGaps.size() <= MAX_PENDING_GAPS; seq++) {
+            this.pendingGaps.put(seq, deadline);
+        }
+    }
+
+    /**
+     * 丢弃超时的空缺，查询其余空缺，已出现的按用户当前的状态更新索引
+     */
+    private void fillGaps() {
+        long now = System.currentTimeMillis();
+        this.pendingGaps.values().removeIf(deadline -> deadline < now);
+        if (this.pendingGaps.isEmpty()) {
+            return;
+        }
+        List<long[]> filled = new ArrayList<>();
+        for (List<Long> chunk : QueryParameterChunks.split(new ArrayList<>(this.pendingGaps.keySet()),
+                QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            String sql = String.format(FILLED_GAP_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            this.jdbcTemplate.query(sql, rs -> {
+                long seq = rs.getLong(1);
+                long userId = rs.getLong(2);
+                rs.getLong(3);
+                boolean exists = !rs.wasNull();
+                int status = rs.getInt(4);
+                filled.add(new long[]{seq, userId, !exists ? ABSENT : rs.wasNull() ? NULL_STATUS : status});
+            }, chunk.toArray());
+        }
+        if (filled.isEmpty()) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            for (long[] gap : filled) {
+                this.index.apply(gap[1], (int) gap[2]);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        for (long[] gap : filled) {
+            this.pendingGaps.remove(gap[0]);
+        }
+    }
+
+    /**
+     * id → 状态及各状态的 id 集合
+     */
+    private static class Index {
+
+        private final LongIntHashMap statusById;
+
+        private int[] statuses = new int[0];
+
+        private LongHashSet[] idsByStatus = new LongHashSet[0];
+
+        Index(int expectedSize) {
+            this.statusById = new LongIntHashMap(expectedSize);
+        }
+
+        /**
+         * 设置用户的状态
+         * @param status 状态，NULL_STATUS 表示状态为 null，ABSENT 表示用户已删除
+         */
+        void apply(long id, int status) {
+            int previous = status == ABSENT ? this.statusById.remove(id, ABSENT) : this.statusById.put(id, status, ABSENT);
+            if (previous == status) {
+                return;
+            }
+            if (previous != ABSENT && previous != NULL_STATUS) {
+                this.idsOf(previous, false).remove(id);
+            }
+            if (status != ABSENT && status != NULL_STATUS) {
+                this.idsOf(status, true).add(id);
+            }
+        }
+
+        /**
+         * 状态对应的 id 集合；状态种类很少，线性查找即可，避免以 Integer 为键
+         */
+        LongHashSet idsOf(int status, boolean create) {
+            for (int i = 0; i < this.statuses.length; i++) {
+                if (this.statuses[i] == status) {
+                    return this.idsByStatus[i];
+                }
+            }
+            if (!create) {
+                return null;
+            }
+            int length = this.statuses.length;
+            this.statuses = Arrays.copyOf(this.statuses, length + 1);
+            this.idsByStatus = Arrays.copyOf(this.idsByStatus, length + 1);
+            this.statuses[length] = status;
+            this.idsByStatus[length] = new LongHashSet(0);
+            return this.idsByStatus[length];
+        }
+
+        long memoryBytes() {
+            long bytes = this.statusById.memoryBytes() + (long) this.statuses.length * Integer.BYTES;
+            for (LongHashSet ids : this.idsByStatus) {
+                bytes += ids.memoryBytes();
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.repository.UserChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 用户状态内存索引配置，codedemo.user-status-index.enabled=true 时启用
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "codedemo.user-status-index", name = "enabled")
+public class UserStatusIndexConfig {
+
+    @Bean
+    public UserStatusIndex userStatusIndex(JdbcTemplate jdbcTemplate, UserChangeRepository userChangeRepository,
+                                           @Value("${codedemo.user-status-index.gap-timeout-millis:60000}") long gapTimeoutMillis) {
+        return new UserStatusIndex(jdbcTemplate, userChangeRepository, gapTimeoutMillis);
+    }
+}
@@ -0,0 +1,94 @@
+package club.codedemo.springdatajpaquery.change;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录 UserRepository 中 @Modifying 写操作及 deleteInBatch、deleteAllInBatch 的用户变更
+ * 这些方法直接执行 update/insert/delete 语句，不经过 Hibernate 的实体事件；
+ * 切面位于仓库的事务之外，因此用 TransactionTemplate 把写操作和变更记录放进同一个事务(已有事务时加入该事务)
+ */
+@Aspect
+public class UserChangeAspect {
+
+    private final UserChangeRecorder userChangeRecorder;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public UserChangeAspect(UserChangeRecorder userChangeRecorder, TransactionTemplate transactionTemplate) {
+        this.userChangeRecorder = userChangeRecorder;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * updateUserSetStatusForNameUsingJPQL、updateUserSetStatusForNameUsingNative
+     */
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository) " +
+            "&& execution(* updateUserSetStatusForName*(Integer, String)) && args(status, name)")
+    public Object recordUpdateByName(ProceedingJoinPoint joinPoint, Integer status, String name) {
+        return this.transactionTemplate.execute(transactionStatus -> {
+            Object result = proceed(joinPoint);
+            this.userChangeRecorder.recordUpdatedByName(name);
+            return result;
+        });
+    }
+
+    /**
+     * insertUserUsingNative
+     */
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository) " +
+            "&& execution(* insertUserUsingNative(String, Integer, String)) && args(name, status, email)")
+    public Object recordInsert(ProceedingJoinPoint joinPoint, String name, Integer status, String email) {
+        return this.transactionTemplate.execute(transactionStatus -> {
+            Object result = proceed(joinPoint);
+            this.userChangeRecorder.recordInsertedFromSequence(status);
+            return result;
+        });
+    }
+
+    /**
+     * deleteInBatch：按传入的实体记录，状态取实体中的值
+     */
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository) " +
+            "&& execution(* deleteInBatch(Iterable)) && args(entities)")
+    public Object recordDeleteInBatch(ProceedingJoinPoint joinPoint, Iterable<User> entities) {
+        return this.transactionTemplate.execute(transactionStatus -> {
+            Object result = proceed(joinPoint);
+            List<Object[]> changes = new ArrayList<>();
+            for (User user : entities) {
+                changes.add(new Object[]{user.getId(), user.getStatus()});
+            }
+            this.userChangeRecorder.recordAll(changes, UserChange.Operation.DELETE, Math.max(1, changes.size()));
+            return result;
+        });
+    }
+
+    /**
+     * deleteAllInBatch：删除之前记录表中的全部用户
+     */
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository) " +
+            "&& execution(* deleteAllInBatch())")
+    public Object recordDeleteAllInBatch(ProceedingJoinPoint joinPoint) {
+        return this.transactionTemplate.execute(transactionStatus -> {
+            this.userChangeRecorder.recordAllUsers(UserChange.Operation.DELETE);
+            return proceed(joinPoint);
+        });
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package club.codedemo.springdatajpaquery.change;
+
+import club.codedemo.springdatajpaquery.startup.EventListenerIntegrator;
+import org.hibernate.event.spi.EventType;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 用户变更记录配置
+ * JPA 写入由 Hibernate 事件监听器记录，@Modifying 写操作由切面记录，批量写入(UserRepositoryBatch)在实现中直接记录
+ */
+@Configuration
+public class UserChangeConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer userChangeListenerCustomizer(UserChangeRecorder userChangeRecorder) {
+        UserChangeEventListener listener = new UserChangeEventListener(userChangeRecorder);
+        return EventListenerIntegrator.customizer(registry -> {
+            registry.appendListeners(EventType.POST_INSERT, listener);
+            registry.appendListeners(EventType.POST_UPDATE, listener);
+            registry.appendListeners(EventType.POST_DELETE, listener);
+        });
+    }
+
+    @Bean
+    public UserChangeAspect userChangeAspect(UserChangeRecorder userChangeRecorder,
+                                             PlatformTransactionManager transactionManager) {
+        return new UserChangeAspect(userChangeRecorder, new TransactionTemplate(transactionManager));
+    }
+}
@@ -0,0 +1,62 @@
+package club.codedemo.springdatajpaquery.change;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 记录通过 JPA 写入的用户变更(save、saveAll、delete 等)
+ * 在 Hibernate 执行 insert/update/delete 之后、事务提交之前调用，变更记录与用户的写入位于同一事务
+ */
+public class UserChangeEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final UserChangeRecorder userChangeRecorder;
+
+    public UserChangeEventListener(UserChangeRecorder userChangeRecorder) {
+        this.userChangeRecorder = userChangeRecorder;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User) {
+            this.userChangeRecorder.record((Long) event.getId(), UserChange.Operation.INSERT,
+                    ((User) event.getEntity()).getStatus());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User) {
+            this.userChangeRecorder.record((Long) event.getId(), UserChange.Operation.UPDATE,
+                    ((User) event.getEntity()).getStatus());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            this.userChangeRecorder.record((Long) event.getId(), UserChange.Operation.DELETE,
+                    ((User) event.getEntity()).getStatus());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Hibernate 5.4 中仍为抽象方法，只能一并实现
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return this.requiresPostCommitHandling(persister);
+    }
+}
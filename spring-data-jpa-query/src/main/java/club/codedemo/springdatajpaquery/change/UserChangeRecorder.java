@@ -0,0 +1,97 @@
+package club.codedemo.springdatajpaquery.change;
+
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import club.codedemo.springdatajpaquery.repository.QueryParameterChunks;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 用户变更记录的写入
+ * 通过 JdbcTemplate 写入 user_change，与调用方共用当前事务的连接，用户的写入回滚时变更记录一并回滚；
+ * 按条件批量更新时使用 insert ... select，在同一条语句中按相同条件找出受影响的用户
+ */
+@Component
+public class UserChangeRecorder {
+
+    private static final String INSERT_SQL =
+            "insert into user_change (user_id, operation, status, changed_at) values (?, ?, ?, current_timestamp)";
+
+    private static final String INSERT_BY_NAME_SQL =
+            "insert into user_change (user_id, operation, status, changed_at) " +
+                    "select id, 'UPDATE', status, current_timestamp from user where name = ?";
+
+    private static final String INSERT_BY_NAMES_SQL =
+            "insert into user_change (user_id, operation, status, changed_at) " +
+                    "select id, 'UPDATE', status, current_timestamp from user where name in (%s)";
+
+    private static final String INSERT_FROM_SEQUENCE_SQL =
+            "insert into user_change (user_id, operation, status, changed_at) " +
+                    "values (currval('user_seq'), 'INSERT', ?, current_timestamp)";
+
+    private static final String INSERT_ALL_SQL =
+            "insert into user_change (user_id, operation, status, changed_at) " +
+                    "select id, ?, status, current_timestamp from user";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserChangeRecorder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 记录单个用户的变更
+     */
+    public void record(Long userId, UserChange.Operation operation, Integer status) {
+        this.jdbcTemplate.update(INSERT_SQL, userId, operation.name(), status);
+    }
+
+    /**
+     * 批量记录变更，每 batchSize 条以一次 JDBC 批处理发送
+     * @param changes 每项为 {用户 id, 状态}
+     */
+    public void recordAll(List<Object[]> changes, UserChange.Operation operation, int batchSize) {
+        this.jdbcTemplate.batchUpdate(INSERT_SQL, changes, batchSize, (ps, change) -> {
+            ps.setObject(1, change[0]);
+            ps.setString(2, operation.name());
+            ps.setObject(3, change[1]);
+        });
+    }
+
+    /**
+     * 按姓名更新状态之后，记录该姓名的全部用户
+     */
+    public void recordUpdatedByName(String name) {
+        this.jdbcTemplate.update(INSERT_BY_NAME_SQL, name);
+    }
+
+    /**
+     * 按姓名批量更新状态之后，记录各姓名的全部用户
+     * 与其它 IN 查询相同，按 QueryParameterChunks 拆分为补齐到2的幂次的块，SQL 形态数有限且不超过数据库的参数上限
+     */
+    public void recordUpdatedByNames(Collection<String> names) {
+        for (List<String> chunk : QueryParameterChunks.split(names, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            this.jdbcTemplate.update(String.format(INSERT_BY_NAMES_SQL, placeholders), chunk.toArray());
+        }
+    }
+
+    /**
+     * 以 Native insert 插入用户之后记录该用户
+     * id 由数据表默认值从序列 user_seq 生成，currval 返回当前连接最近一次生成的值，不受其它连接并发插入的影响；
+     * 须在同一事务(同一连接)中紧接着插入语句调用
+     */
+    public void recordInsertedFromSequence(Integer status) {
+        this.jdbcTemplate.update(INSERT_FROM_SEQUENCE_SQL, status);
+    }
+
+    /**
+     * 记录表中的全部用户，用于删除全部用户之前
+     */
+    public void recordAllUsers(UserChange.Operation operation) {
+        this.jdbcTemplate.update(INSERT_ALL_SQL, operation.name());
+    }
+}
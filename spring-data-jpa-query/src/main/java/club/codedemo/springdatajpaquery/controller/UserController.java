@@ -0,0 +1,103 @@
+package club.codedemo.springdatajpaquery.controller;
+
+import club.codedemo.springdatajpaquery.entity.ReactiveUser;
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.ReactiveUserRepository;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import club.codedemo.springdatajpaquery.service.UserExportService;
+import club.codedemo.springdatajpaquery.service.UserRepositoryAsync;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 用户查询接口
+ * /users/... 在 Servlet 线程中同步查询；/users/async/... 通过 UserRepositoryAsync 在专用线程池中查询，
+ * 返回 CompletableFuture 后立即释放 Servlet 线程，查询完成后再写回响应；
+ * /users/reactive/... 通过 ReactiveUserRepository 以 R2DBC 查询，查询期间既不占用 Servlet 线程也不占用额外的线程；
+ * /users/export 通过 UserExportService 将全部用户以分块传输编码(chunked)边查询边写出
+ */
+@RestController
+@RequestMapping("users")
+public class UserController {
+
+    private final UserRepository userRepository;
+
+    private final UserRepositoryAsync userRepositoryAsync;
+
+    private final ReactiveUserRepository reactiveUserRepository;
+
+    private final UserExportService userExportService;
+
+    public UserController(UserRepository userRepository, UserRepositoryAsync userRepositoryAsync,
+                          ReactiveUserRepository reactiveUserRepository, UserExportService userExportService) {
+        this.userRepository = userRepository;
+        this.userRepositoryAsync = userRepositoryAsync;
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.userExportService = userExportService;
+    }
+
+    @GetMapping("status/{status}")
+    public List<User> findUserByStatus(@PathVariable Integer status) {
+        return this.userRepository.findUserByStatusUsingJPQL(status);
+    }
+
+    @GetMapping("async/status/{status}")
+    public CompletableFuture<List<User>> findUserByStatusAsync(@PathVariable Integer status) {
+        return this.userRepositoryAsync.findUserByStatusUsingJPQL(status);
+    }
+
+    @GetMapping("reactive/status/{status}")
+    public Flux<ReactiveUser> findUserByStatusReactive(@PathVariable Integer status) {
+        return this.reactiveUserRepository.findUserByStatus(status);
+    }
+
+    /**
+     * 导出全部用户
+     * @param formatName csv(默认)或 json，不区分大小写，其它值返回 400
+     * @param acceptEncoding 包含 gzip 时以 gzip 压缩响应
+     */
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "format", defaultValue = "csv") String formatName,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Spring 内置的枚举转换区分大小写，这里自行解析
+        UserExportService.Format format;
+        try {
+            format = UserExportService.Format.valueOf(formatName.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == UserExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + format.name().toLowerCase(Locale.ROOT))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192);
+                this.userExportService.export(format, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                this.userExportService.export(format, outputStream);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 启动时输出实际生效的连接池及 Hibernate 语句配置
+ * 便于确认 profile(如 high-throughput)中的配置是否生效，未配置的项输出 Hibernate 的默认值说明
+ */
+@Component
+public class DataSourceSettingsReport {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceSettingsReport.class);
+
+    /**
+     * 报告中的 Hibernate 配置项及未配置时的默认行为
+     */
+    private static final String[][] HIBERNATE_SETTINGS = {
+            {"hibernate.jdbc.batch_size", "disabled"},
+            {"hibernate.order_inserts", "false"},
+            {"hibernate.order_updates", "false"},
+            {"hibernate.jdbc.batch_versioned_data", "true"},
+            {"hibernate.jdbc.fetch_size", "driver default"},
+            {"hibernate.query.in_clause_parameter_padding", "false"},
+            {"hibernate.query.plan_cache_max_size", "2048"},
+            {"hibernate.query.plan_parameter_metadata_max_size", "128"},
+            {"hibernate.criteria.literal_handling_mode", "auto"},
+            {"hibernate.cache.use_second_level_cache", "true"},
+            {"hibernate.generate_statistics", "false"}
+    };
+
+    private final Environment environment;
+
+    private final ObjectProvider<HikariDataSource> dataSources;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public DataSourceSettingsReport(Environment environment, ObjectProvider<HikariDataSource> dataSources,
+                                    EntityManagerFactory entityManagerFactory) {
+        this.environment = environment;
+        this.dataSources = dataSources;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        Map<String, Object> settings = this.settings();
+        StringBuilder report = new StringBuilder("Effective data source settings (profiles ")
+                .append(Arrays.toString(this.environment.getActiveProfiles())).append("):");
+        settings.forEach((key, value) -> report.append(System.lineSeparator()).append("  ")
+                .append(key).append(" = ").append(value));
+        logger.info(report.toString());
+    }
+
+    /**
+     * 实际生效的配置
+     * @return 配置项 -> 取值，按连接池、Hibernate 的顺序排列
+     */
+    public Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        this.dataSources.orderedStream().forEach(dataSource -> {
+            String prefix = "hikari." + dataSource.getPoolName() + ".";
+            settings.put(prefix + "jdbcUrl", dataSource.getJdbcUrl());
+            settings.put(prefix + "maximumPoolSize", dataSource.getMaximumPoolSize());
+            settings.put(prefix + "minimumIdle", dataSource.getMinimumIdle());
+            settings.put(prefix + "connectionTimeout", dataSource.getConnectionTimeout());
+            settings.put(prefix + "autoCommit", dataSource.isAutoCommit());
+            settings.put(prefix + "dataSourceProperties", dataSource.getDataSourceProperties());
+        });
+        Map<String, Object> properties = this.entityManagerFactory.getProperties();
+        for (String[] setting : HIBERNATE_SETTINGS) {
+            Object value = properties.get(setting[0]);
+            settings.put(setting[0], value != null ? value : "(default: " + setting[1] + ")");
+        }
+        return settings;
+    }
+}
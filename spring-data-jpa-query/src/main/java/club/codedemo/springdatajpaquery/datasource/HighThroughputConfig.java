@@ -0,0 +1,59 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * high-throughput profile 的数据源配置
+ * 连接 MySQL 时为驱动开启客户端预编译语句缓存、服务端预编译及批量 insert 改写；
+ * 这些是 MySQL 驱动特有的属性(H2 会拒绝未知属性)，因此按 jdbcUrl 判断后再设置，其它配置见 application-high-throughput.properties
+ */
+@Configuration
+@Profile("high-throughput")
+public class HighThroughputConfig {
+
+    static final Map<String, String> MYSQL_DATA_SOURCE_PROPERTIES;
+
+    static {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("cachePrepStmts", "true");
+        properties.put("prepStmtCacheSize", "500");
+        properties.put("prepStmtCacheSqlLimit", "2048");
+        properties.put("useServerPrepStmts", "true");
+        properties.put("rewriteBatchedStatements", "true");
+        properties.put("useLocalSessionState", "true");
+        properties.put("cacheResultSetMetadata", "true");
+        properties.put("elideSetAutoCommits", "true");
+        MYSQL_DATA_SOURCE_PROPERTIES = properties;
+    }
+
+    /**
+     * 在 spring.datasource.hikari.* 绑定之后、连接池启动之前设置，已显式配置的属性保持不变
+     */
+    @Bean
+    public static BeanPostProcessor mysqlDataSourcePropertiesPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    String jdbcUrl = dataSource.getJdbcUrl();
+                    if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:mysql:")) {
+                        MYSQL_DATA_SOURCE_PROPERTIES.forEach((key, value) -> {
+                            if (!dataSource.getDataSourceProperties().containsKey(key)) {
+                                dataSource.addDataSourceProperty(key, value);
+                            }
+                        });
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.autoconfigure.r2dbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.DefaultReactiveDataAccessStrategy;
+import org.springframework.data.r2dbc.core.ReactiveDataAccessStrategy;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * R2DBC 连接配置
+ * 未设置 spring.r2dbc.url 时，按 spring.datasource.* 中的 H2 地址创建连接池，使 ReactiveUserRepository 与 JPA 访问同一个数据库
+ * (Spring Boot 默认会另建一个内嵌数据库)；其它数据库请设置 spring.r2dbc.url。连接池大小由 spring.r2dbc.pool.max-size 指定。
+ * 连接池不注册为 ConnectionFactory 类型的 Bean，只通过名为 r2dbcDatabaseClient 的 DatabaseClient 提供给 ReactiveUserRepository：
+ * 存在 ConnectionFactory Bean 时 Spring Boot 不再配置 JDBC 数据源(及 JPA)，并会再创建一个 R2DBC 事务管理器
+ * (为此 application.properties 中同时排除了 R2dbcAutoConfiguration)
+ */
+@Configuration
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveConnectionFactoryConfig implements DisposableBean {
+
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveConnectionFactoryConfig(DataSourceProperties dataSourceProperties, R2dbcProperties r2dbcProperties) {
+        R2dbcProperties.Pool pool = r2dbcProperties.getPool();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(connectionFactory(dataSourceProperties, r2dbcProperties))
+                .name("r2dbc")
+                .initialSize(Math.min(pool.getInitialSize(), pool.getMaxSize()))
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .build());
+    }
+
+    /**
+     * 名称与 @EnableR2dbcRepositories 的默认 databaseClientRef 一致，由 Spring Boot 自动配置的 ReactiveUserRepository 使用
+     */
+    @Bean
+    public DatabaseClient r2dbcDatabaseClient(ReactiveDataAccessStrategy reactiveDataAccessStrategy) {
+        return DatabaseClient.builder()
+                .connectionFactory(connectionPool)
+                .dataAccessStrategy(reactiveDataAccessStrategy)
+                .build();
+    }
+
+    /**
+     * 名称与 R2dbcRepositoryFactoryBean 引用的 Bean 一致
+     */
+    @Bean
+    public ReactiveDataAccessStrategy reactiveDataAccessStrategy() {
+        return new DefaultReactiveDataAccessStrategy(DialectResolver.getDialect(connectionPool));
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private static ConnectionFactory connectionFactory(DataSourceProperties dataSourceProperties, R2dbcProperties r2dbcProperties) {
+        if (StringUtils.hasText(r2dbcProperties.getUrl())) {
+            return ConnectionFactoryBuilder.of(r2dbcProperties, () -> EmbeddedDatabaseConnection.NONE).build();
+        }
+        String url = dataSourceProperties.determineUrl();
+        Assert.state(url != null && url.startsWith(H2_URL_PREFIX),
+                "spring.r2dbc.url must be set when spring.datasource.url is not an H2 url: " + url);
+        H2ConnectionConfiguration.Builder builder = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername());
+        String password = dataSourceProperties.determinePassword();
+        if (password != null) {
+            builder.password(password);
+        }
+        return new H2ConnectionFactory(builder.build());
+    }
+}
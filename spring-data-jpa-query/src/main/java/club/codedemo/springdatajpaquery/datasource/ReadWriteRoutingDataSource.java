@@ -0,0 +1,147 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离的路由数据源
+ * 只读事务(@Transactional(readOnly = true)，UserRepository 中的查询方法默认如此)轮流访问健康的只读副本，
+ * 其它情况(读写事务、事务之外的访问)访问主库；没有健康的副本时只读事务同样访问主库。
+ * 启用 stickyAfterWrite 后，线程执行读写事务之后的一段时间内，该线程的只读事务也访问主库，以读到自己刚写入的数据。
+ * 只读标记在事务开始后才设置，因此须包装在 LazyConnectionDataSourceProxy 中，在第一条语句执行时才决定路由
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+
+    private final long stickyAfterWriteMillis;
+
+    private final int healthCheckTimeoutSeconds;
+
+    private final DataSource primary;
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private final ThreadLocal<Long> stickyUntil = new ThreadLocal<>();
+
+    private volatile List<String> healthyReplicas;
+
+    private volatile Map<String, String> replicaErrors = Collections.emptyMap();
+
+    /**
+     * @param primary 主库
+     * @param replicas 只读副本，键为副本名称
+     * @param stickyAfterWrite 访问主库后只读事务继续访问主库的时长
+     * @param healthCheckTimeout 健康检查的超时时间
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      Duration stickyAfterWrite, Duration healthCheckTimeout) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.stickyAfterWriteMillis = stickyAfterWrite.toMillis();
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.getSeconds());
+        this.healthyReplicas = new ArrayList<>(this.replicas.keySet());
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        this.setTargetDataSources(targets);
+        this.setDefaultTargetDataSource(primary);
+        this.setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        long now = System.currentTimeMillis();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (this.stickyAfterWriteMillis > 0 && TransactionSynchronizationManager.isActualTransactionActive()) {
+                this.stickyUntil.set(now + this.stickyAfterWriteMillis);
+            }
+            return PRIMARY;
+        }
+        Long until = this.stickyUntil.get();
+        if (until != null && until > now) {
+            return PRIMARY;
+        }
+        List<String> healthy = this.healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(this.counter.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * 检查各副本能否获取连接并通过校验，只有健康的副本参与路由
+     */
+    @Scheduled(initialDelayString = "${codedemo.datasource.routing.health-check-interval-millis:10000}",
+            fixedDelayString = "${codedemo.datasource.routing.health-check-interval-millis:10000}")
+    public void checkReplicas() {
+        List<String> healthy = new ArrayList<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (Map.Entry<String, DataSource> replica : this.replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (connection.isValid(this.healthCheckTimeoutSeconds)) {
+                    healthy.add(replica.getKey());
+                } else {
+                    errors.put(replica.getKey(), "Connection is not valid");
+                }
+            } catch (Exception e) {
+                errors.put(replica.getKey(), e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            logger.warn("Unhealthy read replicas, reads are routed to {}: {}",
+                    healthy.isEmpty() ? PRIMARY : healthy, errors);
+        }
+        this.healthyReplicas = Collections.unmodifiableList(healthy);
+        this.replicaErrors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * 当前参与路由的副本
+     */
+    public List<String> getHealthyReplicas() {
+        return this.healthyReplicas;
+    }
+
+    /**
+     * 最近一次健康检查中不健康的副本及原因
+     */
+    public Map<String, String> getReplicaErrors() {
+        return this.replicaErrors;
+    }
+
+    /**
+     * 关闭主库及副本的连接池：它们都不是 Spring 管理的 Bean
+     */
+    @Override
+    public void destroy() throws IOException {
+        List<DataSource> dataSources = new ArrayList<>(this.replicas.values());
+        dataSources.add(this.primary);
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+}
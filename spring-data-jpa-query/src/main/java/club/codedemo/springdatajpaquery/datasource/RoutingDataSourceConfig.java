@@ -0,0 +1,92 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置
+ * 启用后替换 Spring Boot 自动配置的数据源：主库按 spring.datasource.* 及 spring.datasource.hikari.* 创建，
+ * 副本按 codedemo.datasource.routing.replicas 创建，JPA、JdbcTemplate 等使用包装后的路由数据源
+ */
+@Configuration
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+@ConditionalOnProperty(prefix = "codedemo.datasource.routing", name = "enabled")
+public class RoutingDataSourceConfig {
+
+    /**
+     * 应用使用的数据源：延迟到第一条语句执行时才获取连接，此时事务的只读标记已经设置。
+     * 主库、副本的连接池及路由数据源都在此创建而不单独注册为 Bean：Spring Boot 在每个 DataSource Bean 初始化后
+     * 都会获取 dataSource 执行初始化脚本，在创建 dataSource 的过程中初始化其它 DataSource Bean 会造成循环创建
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 RoutingDataSourceProperties properties,
+                                 Environment environment) {
+        HikariDataSource primaryDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryDataSource));
+        primaryDataSource.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<RoutingDataSourceProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            RoutingDataSourceProperties.Replica replica = replicaProperties.get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null
+                    ? replica.getUsername() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(replica.getPassword() != null
+                    ? replica.getPassword() : dataSourceProperties.determinePassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(replica.getConnectionTimeout().toMillis());
+            dataSource.setReadOnly(true);
+            replicas.put(dataSource.getPoolName(), dataSource);
+        }
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                properties.getStickyAfterWrite(), properties.getHealthCheckTimeout());
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.checkReplicas();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * dataSource 包装的路由数据源，在 dataSource 创建完成后才注册；容器关闭时由它关闭主库及副本的连接池
+     */
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSource dataSource) {
+        return (ReadWriteRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+    }
+
+    /**
+     * 副本的健康状况，见 /actuator/health 中的 replicas；没有健康的副本时读操作退回主库，应用仍可用，因此状态保持 UP
+     */
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return () -> {
+            List<String> healthy = readWriteRoutingDataSource.getHealthyReplicas();
+            return Health.up()
+                    .withDetail("healthy", healthy)
+                    .withDetail("unhealthy", readWriteRoutingDataSource.getReplicaErrors())
+                    .withDetail("readsRoutedTo", healthy.isEmpty() ? ReadWriteRoutingDataSource.PRIMARY : "replicas")
+                    .build();
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ * 主库沿用 spring.datasource.*，只读副本在 codedemo.datasource.routing.replicas 中逐个配置
+ */
+@ConfigurationProperties(prefix = "codedemo.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    /**
+     * 是否启用读写分离
+     */
+    private boolean enabled = false;
+
+    /**
+     * 只读副本
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * 写操作之后，同一线程的读操作继续访问主库的时长，用于读到自己刚写入的数据(副本存在复制延迟)；0 表示不启用
+     */
+    private Duration stickyAfterWrite = Duration.ZERO;
+
+    /**
+     * 健康检查时等待副本响应的时长
+     */
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getStickyAfterWrite() {
+        return stickyAfterWrite;
+    }
+
+    public void setStickyAfterWrite(Duration stickyAfterWrite) {
+        this.stickyAfterWrite = stickyAfterWrite;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    /**
+     * 只读副本的连接配置，未配置的用户名、密码与主库相同
+     */
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * 副本连接池的最大连接数
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * 从副本连接池获取连接的超时时间
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package club.codedemo.springdatajpaquery.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * 用户(R2DBC)
+ * 与 User 对应同一张 user 表，供 ReactiveUserRepository 以非阻塞方式读取；
+ * 不是 JPA 实体，不参与二级缓存、变更记录等 JPA 侧的功能，因此只用于读取，写操作仍通过 UserRepository 完成
+ */
+@Table("user")
+public class ReactiveUser {
+
+    @Id
+    private Long id;
+    // 姓名
+    private String name;
+    // 状态
+    private Integer status;
+    // 邮箱
+    private String email;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+}
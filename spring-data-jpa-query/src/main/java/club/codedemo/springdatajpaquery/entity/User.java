@@ -1,16 +1,45 @@
 package club.codedemo.springdatajpaquery.entity;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
+/**
+ * 用户
+ * 启用二级缓存，缓存区域为 CACHE_REGION，区域的大小见 application.conf；
+ * 区域名称不含"."：Caffeine JCache 按路径查找配置，实体类全名中的"."会被当作路径分隔符而找不到配置
+ * 索引对应 UserRepository 中的查询条件，data.sql 中建表时同样创建了这些索引：
+ * (status, name)：按状态和姓名查询，也用于只按状态查询(按状态查询的方法以 ORDER BY id 确定顺序)；
+ * name：按姓名查询及更新；email：按邮箱查询；name_length：按姓名长度排序
+ */
 @Entity
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@Table(indexes = {
+        @Index(name = "idx_user_status_name", columnList = "status, name"),
+        @Index(name = "idx_user_name", columnList = "name"),
+        @Index(name = "idx_user_email", columnList = "email"),
+        @Index(name = "idx_user_name_length", columnList = "name_length")
+})
 public class User {
 
+    /**
+     * 二级缓存区域
+     */
+    public static final String CACHE_REGION = "user";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    // id 自增
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", initialValue = 101, allocationSize = 50)
+    // id 由序列 user_seq 按块(每块50个)分配，Hibernate 无需逐条回读自增 id，因此可以批量插入
     private Long id;
     // 姓名
     private String name;
@@ -18,6 +47,9 @@ public class User {
     private Integer status;
     // 邮箱
     private String email;
+    // 姓名长度，由数据库根据 name 计算的计算列，仅用于排序(见 UserSort)；新增或修改后在重新加载前不会刷新，因此不提供 getter
+    @Column(name = "name_length", insertable = false, updatable = false)
+    private Integer nameLength;
 
     public Long getId() {
         return id;
@@ -0,0 +1,68 @@
+package club.codedemo.springdatajpaquery.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 用户变更记录
+ * 每次通过 UserRepository 写入用户时，在同一事务中追加一条记录(见 UserChangeRecorder)，
+ * 下游按 seq 递增拉取，只读取上次之后的变更，无需反复扫描 user 表。记录只追加，不修改
+ */
+@Entity
+@Immutable
+@Table(name = "user_change")
+public class UserChange {
+
+    /**
+     * 变更类型
+     */
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    // 变更序号，自增
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+    // 用户 id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    // 变更类型
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 6)
+    private Operation operation;
+    // 变更后的状态，删除时为删除前的状态
+    private Integer status;
+    // 变更时间
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
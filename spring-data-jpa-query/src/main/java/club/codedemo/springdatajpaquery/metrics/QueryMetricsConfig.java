@@ -0,0 +1,54 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+import club.codedemo.springdatajpaquery.startup.EventListenerIntegrator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 仓库方法指标配置
+ * 通过 Hibernate 的 StatementInspector 统计执行的 SQL 语句数，通过 PostLoad 事件统计加载的实体数
+ */
+@Configuration
+@EnableConfigurationProperties(QueryMetricsProperties.class)
+@ConditionalOnProperty(prefix = "codedemo.query-metrics", name = "enabled", matchIfMissing = true)
+public class QueryMetricsConfig {
+
+    /**
+     * 已设置 StatementInspector 时(如其它 customizer 设置的)，先计数再交给原有的 inspector
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.compute(AvailableSettings.STATEMENT_INSPECTOR, (key, existing) -> {
+            StatementInspector delegate = (StatementInspector) existing;
+            return (StatementInspector) sql -> {
+                QueryMetricsContext.statementPrepared();
+                return delegate == null ? sql : delegate.inspect(sql);
+            };
+        });
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityLoadCountingCustomizer() {
+        return EventListenerIntegrator.customizer(registry -> registry.appendListeners(EventType.POST_LOAD,
+                (PostLoadEventListener) event -> QueryMetricsContext.entityLoaded()));
+    }
+
+    @Bean
+    public RepositoryMetricsAspect repositoryMetricsAspect(MeterRegistry meterRegistry,
+                                                           QueryMetricsProperties properties) {
+        return new RepositoryMetricsAspect(meterRegistry, properties);
+    }
+
+    @Bean
+    public RepositoryMetricsEndpoint repositoryMetricsEndpoint(MeterRegistry meterRegistry) {
+        return new RepositoryMetricsEndpoint(meterRegistry);
+    }
+}
@@ -0,0 +1,33 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+/**
+ * 当前线程执行的 SQL 语句数及加载的实体数
+ * 计数只增不减，调用前后两次读取的差值即为本次调用产生的数量
+ */
+public final class QueryMetricsContext {
+
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final int STATEMENTS = 0;
+
+    private static final int ENTITIES = 1;
+
+    private QueryMetricsContext() {
+    }
+
+    static void statementPrepared() {
+        COUNTERS.get()[STATEMENTS]++;
+    }
+
+    static void entityLoaded() {
+        COUNTERS.get()[ENTITIES]++;
+    }
+
+    static long statements() {
+        return COUNTERS.get()[STATEMENTS];
+    }
+
+    static long entities() {
+        return COUNTERS.get()[ENTITIES];
+    }
+}
@@ -0,0 +1,51 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 仓库方法指标配置
+ */
+@ConfigurationProperties(prefix = "codedemo.query-metrics")
+public class QueryMetricsProperties {
+
+    /**
+     * 是否记录仓库方法的指标
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次调用超过该耗时即视为慢查询
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    /**
+     * 单次调用执行的 SQL 语句数超过该值即视为 N+1 查询
+     */
+    private int statementThreshold = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getStatementThreshold() {
+        return statementThreshold;
+    }
+
+    public void setStatementThreshold(int statementThreshold) {
+        this.statementThreshold = statementThreshold;
+    }
+}
@@ -0,0 +1,128 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
+
+/**
+ * 记录 UserRepository 每个方法的指标：
+ * user.repository.invocations：耗时(含 p50/p95/p99 分位数)；
+ * user.repository.rows：返回的记录数；
+ * user.repository.statements：执行的 SQL 语句数(仅统计经由 Hibernate 执行的语句)；
+ * user.repository.entities：加载的实体数；
+ * user.repository.offenders：慢查询及 N+1 查询的次数，同时输出警告日志。
+ * 指标位于最外层，缓存命中的调用同样计入，反映调用方实际感受到的耗时
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RepositoryMetricsAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryMetricsAspect.class);
+
+    static final String INVOCATIONS = "user.repository.invocations";
+
+    static final String ROWS = "user.repository.rows";
+
+    static final String STATEMENTS = "user.repository.statements";
+
+    static final String ENTITIES = "user.repository.entities";
+
+    static final String OFFENDERS = "user.repository.offenders";
+
+    private final MeterRegistry meterRegistry;
+
+    private final QueryMetricsProperties properties;
+
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry, QueryMetricsProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long statements = QueryMetricsContext.statements();
+        long entities = QueryMetricsContext.entities();
+        long start = System.nanoTime();
+        String outcome = "success";
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            this.record(method, outcome, duration, rows(result),
+                    QueryMetricsContext.statements() - statements, QueryMetricsContext.entities() - entities);
+        }
+    }
+
+    private void record(String method, String outcome, long duration, long rows, long statements, long entities) {
+        Timer.builder(INVOCATIONS)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        if (rows >= 0) {
+            this.summary(ROWS, method).record(rows);
+        }
+        this.summary(STATEMENTS, method).record(statements);
+        this.summary(ENTITIES, method).record(entities);
+
+        if (duration > this.properties.getSlowThreshold().toNanos()) {
+            this.meterRegistry.counter(OFFENDERS, "method", method, "reason", "slow").increment();
+            logger.warn("Slow repository call: {} took {} ms, {} statements, {} entities loaded",
+                    method, duration / 1_000_000, statements, entities);
+        }
+        if (statements > this.properties.getStatementThreshold()) {
+            this.meterRegistry.counter(OFFENDERS, "method", method, "reason", "statements").increment();
+            logger.warn("Possible N+1 query: {} executed {} statements and loaded {} entities",
+                    method, statements, entities);
+        }
+    }
+
+    private DistributionSummary summary(String name, String method) {
+        return DistributionSummary.builder(name)
+                .tag("method", method)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * 返回的记录数，无法确定时(如 Stream)返回 -1
+     */
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof int[]
+                || result instanceof BaseStream) {
+            return -1;
+        }
+        return 1;
+    }
+}
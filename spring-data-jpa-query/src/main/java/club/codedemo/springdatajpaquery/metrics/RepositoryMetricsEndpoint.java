@@ -0,0 +1,60 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 仓库方法指标汇总
+ * 访问 /actuator/repositorymetrics 按方法查看调用次数、耗时分位数(毫秒)，以及平均每次调用返回的记录数、执行的语句数和加载的实体数；
+ * 单项指标也可以通过 /actuator/metrics/user.repository.invocations?tag=method:xxx 查看
+ */
+@Endpoint(id = "repositorymetrics")
+public class RepositoryMetricsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    public RepositoryMetricsEndpoint(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> methods() {
+        Map<String, Map<String, Object>> methods = new TreeMap<>();
+        for (Timer timer : this.meterRegistry.find(RepositoryMetricsAspect.INVOCATIONS).timers()) {
+            String method = timer.getId().getTag("method");
+            String outcome = timer.getId().getTag("outcome");
+            Map<String, Object> metrics = methods.computeIfAbsent(method, key -> this.summaries(key));
+            Map<String, Object> invocations = new LinkedHashMap<>();
+            invocations.put("count", timer.count());
+            invocations.put("mean", timer.mean(TimeUnit.MILLISECONDS));
+            invocations.put("max", timer.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                invocations.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+            }
+            metrics.put(outcome, invocations);
+        }
+        return methods;
+    }
+
+    private Map<String, Object> summaries(String method) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("rows", this.mean(RepositoryMetricsAspect.ROWS, method));
+        metrics.put("statements", this.mean(RepositoryMetricsAspect.STATEMENTS, method));
+        metrics.put("entities", this.mean(RepositoryMetricsAspect.ENTITIES, method));
+        return metrics;
+    }
+
+    private Double mean(String name, String method) {
+        DistributionSummary summary = this.meterRegistry.find(name).tag("method", method).summary();
+        return summary == null ? null : summary.mean();
+    }
+}
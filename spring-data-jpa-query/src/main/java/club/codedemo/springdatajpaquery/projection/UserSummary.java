@@ -0,0 +1,12 @@
+package club.codedemo.springdatajpaquery.projection;
+
+/**
+ * 用户摘要 接口投影
+ * 只包含列表页需要的 id 和 姓名，查询时只选取这两列
+ */
+public interface UserSummary {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,41 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Criteria 查询编译结果缓存
+ * 每次执行 Criteria 查询，Hibernate 都要重新构建查询树、渲染为 JPQL 并重新解析。
+ * 这里按查询的形态(如参数个数补齐后的2的幂次)缓存渲染后的 JPQL：同一形态只构建一次 Criteria，
+ * 之后直接以 JPQL 创建查询，Hibernate 从查询计划缓存中取得解析结果，调用方只需绑定参数。
+ * 查询中的参数须使用命名参数(CriteriaBuilder.parameter(type, name))，以便按名称绑定
+ */
+final class CompiledQueryCache {
+
+    private final ConcurrentMap<String, String> queries = new ConcurrentHashMap<>();
+
+    /**
+     * 获取查询形态对应的 JPQL
+     * @param shape 查询形态，相同形态的 Criteria 必须渲染出相同的 JPQL
+     * @param entityManager 用于首次渲染 Criteria
+     * @param criteria 构建 Criteria 查询，仅在该形态首次出现时调用
+     * @return 渲染后的 JPQL
+     */
+    String get(String shape, EntityManager entityManager, Function<CriteriaBuilder, CriteriaQuery<?>> criteria) {
+        return this.queries.computeIfAbsent(shape, key -> entityManager
+                .createQuery(criteria.apply(entityManager.getCriteriaBuilder()))
+                .unwrap(org.hibernate.query.Query.class)
+                .getQueryString());
+    }
+
+    /**
+     * 已缓存的查询形态数
+     */
+    int size() {
+        return this.queries.size();
+    }
+}
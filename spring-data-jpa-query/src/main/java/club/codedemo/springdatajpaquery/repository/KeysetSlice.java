@@ -0,0 +1,70 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 4.5 键集分页的结果
+ * 在 Slice 的基础上携带一个不透明的续页令牌，令牌中记录了本页最后一条记录的 id
+ * @param <T> 实体类型
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private final String continuationToken;
+
+    private KeysetSlice(List<T> content, Pageable pageable, boolean hasNext, String continuationToken) {
+        super(content, pageable, hasNext);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * 由 Slice 生成键集分页结果
+     * @param slice 按 id 升序查询得到的切片
+     * @param idExtractor 获取实体 id 的方法
+     */
+    public static <T> KeysetSlice<T> of(Slice<T> slice, Function<T, Long> idExtractor) {
+        List<T> content = slice.getContent();
+        String token = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            token = encode(idExtractor.apply(content.get(content.size() - 1)));
+        }
+        return new KeysetSlice<>(content, slice.getPageable(), slice.hasNext(), token);
+    }
+
+    /**
+     * 将 id 编码为续页令牌
+     */
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 将续页令牌解码为 id，令牌为空时返回 Long.MIN_VALUE 表示从头开始
+     * @throws IllegalArgumentException 令牌不合法
+     */
+    public static Long decode(String continuationToken) {
+        if (continuationToken == null || continuationToken.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+    }
+
+    /**
+     * 获取续页令牌
+     * @return 下一页的续页令牌，没有下一页时为 null
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
@@ -0,0 +1,69 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * IN 查询参数分块工具
+ * 将大集合拆分为不超过数据库参数上限的块，并把每块补齐到2的幂次长度：
+ * 这样无论集合有多大，生成的 SQL 只有少数几种形态，数据库与 Hibernate 都可以复用已编译的执行计划；
+ * 仓库之外直接拼接 IN 列表的查询(如 UserStatusIndex)同样使用本类
+ */
+public final class QueryParameterChunks {
+
+    /**
+     * 单个 IN 列表的最大参数个数：不超过常见数据库的下限(Oracle 为 1000)的最大2的幂次
+     */
+    public static final int MAX_IN_CLAUSE_SIZE = 512;
+
+    private QueryParameterChunks() {
+    }
+
+    /**
+     * 将集合拆分为补齐后的块
+     * 方法作用：按 maxChunkSize 拆分集合，并以块中最后一个元素重复填充，使每块长度为2的幂次
+     * @param values 待拆分的集合
+     * @param maxChunkSize 每块的最大长度，必须为2的幂次
+     * @return 补齐后的块，集合为空时返回空列表
+     */
+    public static <T> List<List<T>> split(Collection<T> values, int maxChunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(Math.min(values.size(), maxChunkSize));
+        for (T value : values) {
+            chunk.add(value);
+            if (chunk.size() == maxChunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(maxChunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(pad(chunk, paddedSize(chunk.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * 将集合补齐到2的幂次长度
+     * @param values 待补齐的集合，不能为空
+     * @return 以最后一个元素重复填充后的新列表
+     */
+    static <T> List<T> padded(Collection<T> values) {
+        return pad(new ArrayList<>(values), paddedSize(values.size()));
+    }
+
+    /**
+     * 获取不小于 size 的最小2的幂次
+     */
+    static int paddedSize(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static <T> List<T> pad(List<T> chunk, int size) {
+        T last = chunk.get(chunk.size() - 1);
+        while (chunk.size() < size) {
+            chunk.add(last);
+        }
+        return chunk;
+    }
+}
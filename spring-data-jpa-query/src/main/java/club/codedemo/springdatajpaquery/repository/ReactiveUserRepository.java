@@ -0,0 +1,61 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.ReactiveUser;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * 15 响应式用户仓库
+ * 与 UserRepository 访问同一张 user 表，提供其主要查询的 R2DBC 版本：等待数据库期间不占用线程，
+ * 适合 WebFlux 等事件循环模型；返回的 Flux 按下游的请求量(request(n))逐行读取并发出结果，下游处理不过来时不会无限缓冲。
+ * 仅提供读操作，写操作仍通过 UserRepository 完成，以保留查询结果缓存、二级缓存及变更记录：
+ * 因此继承 Repository 而不是 R2dbcRepository，不暴露 save、delete 等方法
+ */
+public interface ReactiveUserRepository extends Repository<ReactiveUser, Long> {
+
+    /**
+     * 15.1 获取所有状态为1的用户，对应 UserRepository#findAllActiveUsersUsingJPQL
+     */
+    @Query("SELECT id, name, status, email FROM user WHERE status = 1 ORDER BY id")
+    Flux<ReactiveUser> findAllActiveUsers();
+
+    /**
+     * 15.2 根据状态查询用户，对应 UserRepository#findUserByStatusUsingJPQL
+     */
+    @Query("SELECT id, name, status, email FROM user WHERE status = :status ORDER BY id")
+    Flux<ReactiveUser> findUserByStatus(@Param("status") Integer status);
+
+    /**
+     * 15.3 根据状态和姓名查询用户，对应 UserRepository#findUserByStatusAndNameUsingJPQL
+     */
+    @Query("SELECT id, name, status, email FROM user WHERE status = :status AND name = :name")
+    Flux<ReactiveUser> findUserByStatusAndName(@Param("status") Integer status, @Param("name") String name);
+
+    /**
+     * 15.4 键集分页，对应 UserRepository#findAllUsersAfterIdUsingJPQL
+     * 获取 id 大于给定值的用户，按 id 升序最多返回 size 条；下一页传入本页最后一个用户的 id，返回少于 size 条时表示已到末页
+     */
+    @Query("SELECT id, name, status, email FROM user WHERE id > :id ORDER BY id LIMIT :size")
+    Flux<ReactiveUser> findAllUsersAfterId(@Param("id") Long id, @Param("size") int size);
+
+    /**
+     * 15.5 根据姓名集合查询用户，对应 UserRepository#findUserByNameListUsingJPQL
+     * 与 UserRepositoryCustom#findUsersByNamesUsingChunks 相同，姓名去重后按补齐到2的幂次的块依次查询，
+     * 前一块的结果发完后才查询下一块
+     */
+    default Flux<ReactiveUser> findUserByNameList(Collection<String> names) {
+        return Flux.fromIterable(QueryParameterChunks.split(new LinkedHashSet<>(names), QueryParameterChunks.MAX_IN_CLAUSE_SIZE))
+                .concatMap(this::findUserByNameIn);
+    }
+
+    /**
+     * 查询姓名属于给定集合的用户，集合参数展开为与其元素个数相同的绑定参数；请使用 findUserByNameList
+     */
+    @Query("SELECT id, name, status, email FROM user WHERE name IN (:names)")
+    Flux<ReactiveUser> findUserByNameIn(@Param("names") Collection<String> names);
+}
@@ -0,0 +1,61 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 用户变更记录仓库
+ * 下游记录已处理的最大 seq，每次调用 findChangesSince 拉取其后的一批变更；
+ * 注意：seq 在插入时分配，并发事务可能以与 seq 不同的顺序提交，需要严格不漏读的消费者可以在每次拉取时回退一个小窗口并按 seq 去重
+ */
+@Transactional(readOnly = true)
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    /**
+     * 单次拉取的最大记录数
+     */
+    int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * 获取 seq 大于给定值的变更，按 seq 升序返回 pageable 指定的条数
+     * 要点：与 4.4 键集分页相同，直接在主键上定位
+     * @return 变更切片，hasNext 表示还有更多变更
+     */
+    @Query("SELECT c FROM UserChange c WHERE c.seq > :seq ORDER BY c.seq")
+    Slice<UserChange> findChangesAfterSeq(@Param("seq") Long seq, Pageable pageable);
+
+    /**
+     * 拉取 seq 之后的一批变更
+     * @param seq 上次处理的最大 seq，首次传入 0
+     * @param batchSize 每批条数，不超过 MAX_BATCH_SIZE
+     * @return 按 seq 升序的变更，为空表示已追上
+     */
+    default List<UserChange> findChangesSince(long seq, int batchSize) {
+        return this.findChangesAfterSeq(seq, PageRequest.of(0, Math.min(batchSize, MAX_BATCH_SIZE))).getContent();
+    }
+
+    /**
+     * 当前最大的 seq，没有变更时为 0
+     */
+    @Query("SELECT COALESCE(MAX(c.seq), 0) FROM UserChange c")
+    long findLatestSeq();
+
+    /**
+     * 清理所有消费者都已处理过的变更
+     * @param seq 清理 seq 不大于该值的记录
+     * @return 清理的记录数
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserChange c WHERE c.seq <= :seq")
+    int deleteChangesUpToSeq(@Param("seq") Long seq);
+}
@@ -0,0 +1,206 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 12 用户动态过滤条件
+ * 代替为每种条件组合单独编写查询方法，可直接传给 UserRepository 的 JpaSpecificationExecutor 方法，
+ * 或传给 findUsersByFilter / findUserSummariesByFilter 进行键集分页及投影查询。
+ * 条件的规范化：无论以何种顺序设置条件，谓词总是按 email、id、name、status 的固定顺序生成，
+ * 姓名集合去重排序后按补齐到2的幂次的块生成 IN 条件，因此等价的过滤条件生成完全相同的 SQL，
+ * 可以共用 Hibernate 的查询计划缓存及数据库的语句缓存；等价的过滤条件 equals 也相等
+ */
+public final class UserFilter implements Specification<User> {
+
+    private final String emailPrefix;
+
+    private final String emailPattern;
+
+    private final Long minId;
+
+    private final Long maxId;
+
+    private final String name;
+
+    private final List<String> names;
+
+    private final Integer status;
+
+    private UserFilter(Builder builder) {
+        this.emailPrefix = builder.emailPrefix;
+        this.emailPattern = builder.emailPattern;
+        this.minId = builder.minId;
+        this.maxId = builder.maxId;
+        this.name = builder.name;
+        this.names = builder.names == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(builder.names)));
+        this.status = builder.status;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Predicate toPredicate(Root<User> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        Path<String> email = root.get("email");
+        if (this.emailPrefix != null) {
+            // 前缀改写为范围查询，可以使用 email 上的索引
+            predicates.add(cb.greaterThanOrEqualTo(email, this.emailPrefix));
+            predicates.add(cb.lessThan(email, UserRepositoryCustomImpl.upperBound(this.emailPrefix)));
+        }
+        if (this.emailPattern != null) {
+            predicates.add(cb.like(email, this.emailPattern));
+        }
+        Path<Long> id = root.get("id");
+        if (this.minId != null) {
+            predicates.add(cb.greaterThanOrEqualTo(id, this.minId));
+        }
+        if (this.maxId != null) {
+            predicates.add(cb.lessThanOrEqualTo(id, this.maxId));
+        }
+        Path<String> name = root.get("name");
+        if (this.name != null) {
+            predicates.add(cb.equal(name, this.name));
+        }
+        if (this.names != null) {
+            if (this.names.isEmpty()) {
+                predicates.add(cb.disjunction());
+            } else {
+                List<Predicate> chunks = new ArrayList<>();
+                for (List<String> chunk : QueryParameterChunks.split(this.names, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+                    chunks.add(name.in(chunk));
+                }
+                predicates.add(chunks.size() == 1 ? chunks.get(0) : cb.or(chunks.toArray(new Predicate[chunks.size()])));
+            }
+        }
+        if (this.status != null) {
+            predicates.add(cb.equal(root.get("status"), this.status));
+        }
+        return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserFilter)) {
+            return false;
+        }
+        UserFilter that = (UserFilter) o;
+        return Objects.equals(emailPrefix, that.emailPrefix)
+                && Objects.equals(emailPattern, that.emailPattern)
+                && Objects.equals(minId, that.minId)
+                && Objects.equals(maxId, that.maxId)
+                && Objects.equals(name, that.name)
+                && Objects.equals(names, that.names)
+                && Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(emailPrefix, emailPattern, minId, maxId, name, names, status);
+    }
+
+    @Override
+    public String toString() {
+        return "UserFilter{emailPrefix=" + emailPrefix + ", emailPattern=" + emailPattern
+                + ", minId=" + minId + ", maxId=" + maxId + ", name=" + name
+                + ", names=" + names + ", status=" + status + "}";
+    }
+
+    public static final class Builder {
+
+        private String emailPrefix;
+
+        private String emailPattern;
+
+        private Long minId;
+
+        private Long maxId;
+
+        private String name;
+
+        private Collection<String> names;
+
+        private Integer status;
+
+        private Builder() {
+        }
+
+        /**
+         * 状态等于给定值
+         */
+        public Builder status(Integer status) {
+            this.status = status;
+            return this;
+        }
+
+        /**
+         * 姓名等于给定值
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 姓名属于给定集合，集合为空时不匹配任何用户
+         */
+        public Builder nameIn(Collection<String> names) {
+            this.names = names;
+            return this;
+        }
+
+        /**
+         * 邮箱以给定前缀开头，使用范围查询
+         * 前缀不能为空，也不能以 Character.MAX_VALUE 结尾(无法将最后一个字符加1得到上界)，此时请使用 emailLike
+         */
+        public Builder emailStartsWith(String prefix) {
+            if (prefix != null && prefix.isEmpty()) {
+                throw new IllegalArgumentException("Email prefix must not be empty");
+            }
+            if (prefix != null && prefix.charAt(prefix.length() - 1) == Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Email prefix must not end with \\uFFFF, use emailLike instead");
+            }
+            this.emailPrefix = prefix;
+            return this;
+        }
+
+        /**
+         * 邮箱匹配给定的 LIKE 模式
+         */
+        public Builder emailLike(String pattern) {
+            this.emailPattern = pattern;
+            return this;
+        }
+
+        /**
+         * id 位于给定闭区间内，任一端为 null 时该端不限
+         */
+        public Builder idBetween(Long minId, Long maxId) {
+            this.minId = minId;
+            this.maxId = maxId;
+            return this;
+        }
+
+        public UserFilter build() {
+            return new UserFilter(this);
+        }
+    }
+}
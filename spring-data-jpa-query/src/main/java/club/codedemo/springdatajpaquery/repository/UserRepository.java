@@ -1,30 +1,55 @@
 package club.codedemo.springdatajpaquery.repository;
 
+import club.codedemo.springdatajpaquery.cache.UserQueryCache;
 import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummary;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 9.3 使用 UserRepositoryCustom 扩展了用户仓库接口
+ * 10.1 使用 UserRepositoryBatch 扩展了批量写入
+ * 11 查询结果缓存：标记了 @Cacheable 的查询结果缓存在 UserQueryCache 中，所有写操作都会清空该缓存；
+ * 命中时返回实体的副本(游离状态)，读写事务中不使用缓存
+ * 12 使用 JpaSpecificationExecutor 支持 UserFilter 动态过滤条件
+ * 14 读写分离：本接口中声明的查询方法默认在只读事务中执行，启用 ReadWriteRoutingDataSource 时访问只读副本；
+ * 写操作须标记 @Transactional，访问主库
  */
-public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+@Transactional(readOnly = true)
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserRepositoryCustom, UserRepositoryBatch {
+
+    /**
+     * 流式查询时每次从数据库中抓取的记录数
+     */
+    String STREAM_FETCH_SIZE = "1000";
 
     /**
      * 2.1 JPQL 查询
      * 方法作用：获取所有激活用户
      * @return 所有激活用户的集合
      */
-    @Query("SELECT u FROM User u WHERE u.status = 1")
+    @Cacheable(cacheNames = UserQueryCache.NAME, keyGenerator = "userQueryKeyGenerator")
+    @Query("SELECT u FROM User u WHERE u.status = 1 ORDER BY u.id")
     Collection<User> findAllActiveUsersUsingJPQL();
 
     /**
@@ -32,9 +57,22 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
      * 方法作用： 获取所有激活用户
      * @return 所有激活用户的集合
      */
-    @Query(value = "SELECT * FROM USER u WHERE u.status = 1", nativeQuery = true)
+    @Query(value = "SELECT * FROM USER u WHERE u.status = 1 ORDER BY u.id", nativeQuery = true)
     Collection<User> findAllActiveUsersUsingNative();
 
+    /**
+     * 2.3 JPQL 流式查询
+     * 方法作用：以 Stream 的形式逐条获取所有激活用户
+     * 要点：Stream 必须在事务中使用并在用完后关闭；查询结果按 fetchSize 分批从数据库中读取，
+     * 只读提示使 Hibernate 不再为实体保存脏检查快照。
+     * 注意：读取过的实体仍在持久化上下文中，遍历大表时请使用 forEachUserUsingStream，或自行定期 clear
+     * @return 所有激活用户的Stream
+     */
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.status = 1 ORDER BY u.id")
+    Stream<User> streamAllActiveUsersUsingJPQL();
+
     /**
      * 3.2 JPQL Sort排序
      * 方法作用：获取全部用户，并按传入的Sort进行排序
@@ -43,6 +81,26 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
     @Query(value = "SELECT u FROM User u")
     List<User> findAllUsersSortUsingJPQL(Sort sort);
 
+    /**
+     * 3.4 JPQL Sort排序 流式查询
+     * 方法作用：以 Stream 的形式逐条获取全部用户，并按传入的Sort进行排序
+     * 用法和 2.3 一致
+     * @return 所有用户的Stream
+     */
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query(value = "SELECT u FROM User u")
+    Stream<User> streamAllUsersSortUsingJPQL(Sort sort);
+
+    /**
+     * 3.5 JPQL DTO投影 Sort排序
+     * 方法作用：获取全部用户的 id 和 姓名，并按传入的Sort进行排序
+     * 要点：只查询投影所需的列；结果是普通对象而不是实体，不会进入持久化上下文，也没有脏检查快照
+     * @return 所有用户摘要的List
+     */
+    @Query(value = "SELECT new club.codedemo.springdatajpaquery.projection.UserSummaryDto(u.id, u.name) FROM User u")
+    List<UserSummaryDto> findAllUserSummariesSortUsingJPQL(Sort sort);
+
     /**
      * 3.3 Native Sort排序
      * 方法作用：获取全部用户，并按传入的Sort进行排序
@@ -77,15 +135,61 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
             countQuery = "SELECT count(*) FROM User", nativeQuery = true)
     Page<User> findAllUsersWithPaginationUsingNativeBeforeJPA2_0_4(Pageable pageable);
 
+    /**
+     * 4.6 Native 分页 不统计总数
+     * 方法作用：获取全部用户，并按传入的Pageable进行分页
+     * 要点：返回 Slice 时 Spring Data 会多取1条记录来判断是否有下一页，不再执行 count(*)，适合无限滚动等不显示总数的场景；
+     * 需要大致总数时配合 UserCountEstimator 使用。
+     * 2.0.4之前版本的 "-- #pageable" 写法不适用于 Slice：Spring Data 不再为该查询设置偏移量，只能返回第一页
+     * @return 分页用户Slice
+     */
+    @Query(value = "SELECT * FROM User ORDER BY id", nativeQuery = true)
+    Slice<User> findAllUsersWithSliceUsingNative(Pageable pageable);
+
+    /**
+     * 4.4 JPQL 键集(Keyset)分页
+     * 方法作用：获取 id 大于给定值的用户，按 id 升序返回 pageable 指定的条数
+     * 要点：使用 WHERE id > ? 直接在主键上定位，代替 OFFSET 跳过前面的记录，无论翻到多深的页耗时都保持不变；
+     * 返回 Slice 时 Spring Data 会多取1条记录来判断是否有下一页，不再执行 count(*)
+     * 注意：pageable 只用来指定条数，请传入第0页且不带排序
+     * @return id 大于给定值的用户切片
+     */
+    @Query(value = "SELECT u FROM User u WHERE u.id > :id ORDER BY u.id")
+    Slice<User> findAllUsersAfterIdUsingJPQL(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * 4.5 基于续页令牌的键集分页
+     * 方法作用：从续页令牌所指的位置开始，获取下一页用户
+     * 要点：首页传入 null，此后传入上一页返回的 KeysetSlice#getContinuationToken()
+     * @param continuationToken 上一页返回的续页令牌，首页为 null
+     * @param size 每页条数
+     * @return 带续页令牌的用户切片
+     */
+    default KeysetSlice<User> findAllUsersWithKeysetUsingJPQL(String continuationToken, int size) {
+        Slice<User> users = this.findAllUsersAfterIdUsingJPQL(KeysetSlice.decode(continuationToken),
+                PageRequest.of(0, size));
+        return KeysetSlice.of(users, User::getId);
+    }
+
     /**
      * 5.1 JPQL 索引参数查询 单参数
      * 方法作用： 根据条件Status查询用户
      * 要点：索引参数模式中，查询条件的顺序和方法参数的顺序相对应
      * @return 状态 == 参数 的所有用户的列表的列表
      */
-    @Query("SELECT u FROM User u WHERE u.status = ?1")
+    @Cacheable(cacheNames = UserQueryCache.NAME, keyGenerator = "userQueryKeyGenerator")
+    @Query("SELECT u FROM User u WHERE u.status = ?1 ORDER BY u.id")
     List<User> findUserByStatusUsingJPQL(Integer status);
 
+    /**
+     * 5.4 JPQL 接口投影
+     * 方法作用： 根据条件Status查询用户的 id 和 姓名
+     * 要点：select 子句中的别名和 UserSummary 的属性名相对应；和 3.5 一样只查询所需的列，不创建实体
+     * @return 状态 == 参数 的所有用户摘要的列表
+     */
+    @Query("SELECT u.id AS id, u.name AS name FROM User u WHERE u.status = ?1 ORDER BY u.id")
+    List<UserSummary> findUserSummaryByStatusUsingJPQL(Integer status);
+
     /**
      * 5.1 JPQL 索引参数查询 多参数
      * 方法作用： 根据条件Status和Name查询用户
@@ -100,9 +204,20 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
      * 用法和JPQL中一致
      * @return 状态 == 参数 的所有用户的列表
      */
-    @Query(value = "SELECT * FROM User u WHERE u.status = ?1", nativeQuery = true)
+    @Query(value = "SELECT * FROM User u WHERE u.status = ?1 ORDER BY u.id", nativeQuery = true)
     List<User> findUserByStatusUsingNative(Integer status);
 
+    /**
+     * 5.3 Native 索引参数查询 流式查询
+     * 方法作用：以 Stream 的形式逐条获取状态 == 参数 的所有用户
+     * 用法和 2.3 一致
+     * @return 状态 == 参数 的所有用户的Stream
+     */
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query(value = "SELECT * FROM User u WHERE u.status = ?1 ORDER BY u.id", nativeQuery = true)
+    Stream<User> streamUserByStatusUsingNative(Integer status);
+
     /**
      * 6.1 JPQL 命名参数查询 多参数
      * 方法作用：根据条件Status和Name查询用户
@@ -137,6 +252,7 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
      * 方法作用：传入一个姓名集合，查询数据表中属于给定集合的所有用户的列表
      * @return 姓名包含在集合中的所有用户的列表的列表
      */
+    @Cacheable(cacheNames = UserQueryCache.NAME, keyGenerator = "userQueryKeyGenerator")
     @Query(value = "SELECT u FROM User u WHERE u.name IN :names")
     List<User> findUserByNameListUsingJPQL(@Param("names") Collection<String> names);
 
@@ -144,6 +260,8 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
      * 8.1 JPQL 执行更新操作
      * 方法作用：按 姓名 查找，更新用户的 状态
      */
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
     @Modifying
     @Query("update User u set u.status = :status where u.name = :name")
     int updateUserSetStatusForNameUsingJPQL(@Param("status") Integer status, @Param("name") String name);
@@ -152,6 +270,8 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
      * 8.2 Native 执行更新操作
      * 方法作用：按 姓名 查找，更新用户的 状态
      */
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
     @Modifying
     @Query(value = "update User u set u.status = ? where u.name = ?", nativeQuery = true)
     int updateUserSetStatusForNameUsingNative(Integer status, String name);
@@ -159,10 +279,62 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
     /**
      * 8.3 Native 执行插入操作
      * 方法作用：插入新的User记录
-     * 注意：插入操作必须使用Native
+     * 注意：插入操作必须使用Native；id 由数据表的默认值从序列 user_seq 中获取
+     * 大量插入请使用 10.2 batchInsertUsers
      */
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
     @Modifying
     @Query(value = "insert into User (name, status, email) values (:name, :status, :email)", nativeQuery = true)
     void insertUserUsingNative(@Param("name") String name, @Param("status") Integer status, @Param("email") String email);
 
+    /*
+     * 11 以下为 JpaRepository 中的写操作，重新声明以便在写入后清空查询结果缓存
+     * 重新声明的方法不再继承 SimpleJpaRepository 的事务配置，须标记 @Transactional，否则按接口上的配置以只读事务执行
+     */
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    <S extends User> S save(S entity);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    <S extends User> List<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    <S extends User> S saveAndFlush(S entity);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void deleteById(Long id);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void delete(User entity);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void deleteAll(Iterable<? extends User> entities);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void deleteAll();
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void deleteInBatch(Iterable<User> entities);
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    void deleteAllInBatch();
 }
@@ -0,0 +1,73 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.cache.UserQueryCache;
+import club.codedemo.springdatajpaquery.entity.User;
+import org.springframework.cache.annotation.CacheEvict;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 10.1 批量写入 自定义接口
+ */
+public interface UserRepositoryBatch {
+
+    /**
+     * 默认每批发送的记录数
+     */
+    int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * 默认每次提交的记录数
+     */
+    int DEFAULT_COMMIT_INTERVAL = 10_000;
+
+    /**
+     * 10.2 JDBC 批量插入
+     * 方法作用：使用默认的批大小及提交间隔批量插入用户
+     * @return 插入的用户数
+     */
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    default long batchInsertUsers(Iterable<User> users) {
+        return this.batchInsertUsers(users.iterator(), DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL);
+    }
+
+    /**
+     * 10.2 JDBC 批量插入
+     * 方法作用：逐条读取 users，每 batchSize 条以一次 JDBC 批处理(addBatch)发送给数据库，每 commitInterval 条提交一次事务
+     * 要点：id 由 User 的序列生成器按块分配并回写到传入的 User 中，插入时不需要回读自增 id；
+     * 数据不会进入持久化上下文，适合迁移数据时一次导入数百万条记录
+     * 注意：若调用时已存在事务，则全部记录都在该事务中提交，commitInterval 不再生效；
+     * 每批发送前刷新、发送后清空持久化上下文，该事务中已加载的实体随之脱管
+     * @param users 待插入的用户
+     * @param batchSize 每批发送的记录数
+     * @param commitInterval 每次提交的记录数
+     * @return 插入的用户数
+     */
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    long batchInsertUsers(Iterator<User> users, int batchSize, int commitInterval);
+
+    /**
+     * 10.3 JDBC 批量更新
+     * 方法作用：按 姓名 查找，将用户的 状态 更新为 Map 中对应的值
+     * 要点：每 batchSize 条 update 语句以一次 JDBC 批处理发送，全部更新在同一个事务中完成
+     * 注意：发送前刷新、发送后清空持久化上下文，与 @Modifying(flushAutomatically, clearAutomatically) 相同，已加载的实体随之脱管
+     * @param statusByName 姓名 -> 状态
+     * @param batchSize 每批发送的语句数
+     * @return 每批更新的记录数；驱动未返回更新数时(如 MySQL 开启 rewriteBatchedStatements)为 Statement.SUCCESS_NO_INFO
+     */
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    int[] batchUpdateUserSetStatusForName(Map<String, Integer> statusByName, int batchSize);
+
+    /**
+     * 10.4 JPQL 分块更新
+     * 方法作用：按 姓名集合 查找，将这些用户的 状态 统一更新为 status
+     * 要点：姓名集合被拆分为补齐到2的幂次的 IN 列表，每块执行一条 update，全部更新在同一个事务中完成
+     * @param status 新状态
+     * @param names 姓名集合
+     * @return 每块更新的记录数
+     */
+    @CacheEvict(cacheNames = UserQueryCache.NAME, allEntries = true)
+    int[] updateUserSetStatusForNamesUsingJPQL(Integer status, Collection<String> names);
+}
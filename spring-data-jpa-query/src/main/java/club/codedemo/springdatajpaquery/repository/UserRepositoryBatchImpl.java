@@ -0,0 +1,169 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.change.UserChangeRecorder;
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class UserRepositoryBatchImpl implements UserRepositoryBatch {
+
+    private static final String INSERT_SQL = "insert into User (id, name, status, email) values (?, ?, ?, ?)";
+
+    private static final String UPDATE_STATUS_SQL = "update User set status = ? where name = ?";
+
+    private static final String UPDATE_STATUS_JPQL = "update User u set u.status = :status where u.name in :names";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UserChangeRecorder userChangeRecorder;
+
+    public UserRepositoryBatchImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   UserChangeRecorder userChangeRecorder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userChangeRecorder = userChangeRecorder;
+    }
+
+    @Override
+    public long batchInsertUsers(Iterator<User> users, int batchSize, int commitInterval) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        Assert.isTrue(commitInterval >= batchSize, "commitInterval must not be less than batchSize");
+
+        long count = 0;
+        while (users.hasNext()) {
+            Long inserted = this.transactionTemplate.execute(status -> this.insertUntilCommit(users, batchSize, commitInterval));
+            count += inserted;
+        }
+        return count;
+    }
+
+    /**
+     * 在当前事务中插入最多 commitInterval 条记录
+     */
+    private long insertUntilCommit(Iterator<User> users, int batchSize, int commitInterval) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        IdentifierGenerator idGenerator = session.getFactory().getIdentifierGenerator(User.class.getName());
+
+        long count = 0;
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        while (count < commitInterval && users.hasNext()) {
+            User user = users.next();
+            user.setId((Long) idGenerator.generate(session, user));
+            batch.add(new Object[]{user.getId(), user.getName(), user.getStatus(), user.getEmail()});
+            count++;
+            if (batch.size() == batchSize) {
+                this.insertBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            this.insertBatch(batch);
+        }
+        return count;
+    }
+
+    /**
+     * 插入一批用户，并在同一事务中记录变更
+     */
+    private void insertBatch(List<Object[]> batch) {
+        this.bypassingPersistenceContext(() -> this.jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+        List<Object[]> changes = new ArrayList<>(batch.size());
+        for (Object[] user : batch) {
+            changes.add(new Object[]{user[0], user[2]});
+        }
+        this.userChangeRecorder.recordAll(changes, UserChange.Operation.INSERT, batch.size());
+    }
+
+    @Override
+    public int[] batchUpdateUserSetStatusForName(Map<String, Integer> statusByName, int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+
+        int[][] counts = this.transactionTemplate.execute(status -> {
+            int[][] updated = this.bypassingPersistenceContext(() -> this.jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL,
+                    statusByName.entrySet(), batchSize, (ps, entry) -> {
+                        ps.setObject(1, entry.getValue());
+                        ps.setString(2, entry.getKey());
+                    }));
+            this.userChangeRecorder.recordUpdatedByNames(statusByName.keySet());
+            this.evictSecondLevelCache();
+            return updated;
+        });
+
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            for (int count : counts[i]) {
+                if (count < 0) {
+                    result[i] = Statement.SUCCESS_NO_INFO;
+                    break;
+                }
+                result[i] += count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行绕过持久化上下文的 JDBC 语句：执行前写出尚未刷新的修改，使其先于 JDBC 语句到达数据库；
+     * 执行后清空持久化上下文，之后的查询重新从数据库读取，而不是返回已过时的托管实体
+     */
+    private <T> T bypassingPersistenceContext(Supplier<T> jdbcWork) {
+        entityManager.flush();
+        T result = jdbcWork.get();
+        entityManager.clear();
+        return result;
+    }
+
+    /**
+     * JDBC 更新绕过了 Hibernate，需要手动使二级缓存中的用户失效；
+     * 事务结束后再失效一次，避免其它事务在提交前把旧数据重新放入缓存
+     */
+    private void evictSecondLevelCache() {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(User.class);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.evict(User.class);
+            }
+        });
+    }
+
+    @Override
+    public int[] updateUserSetStatusForNamesUsingJPQL(Integer status, Collection<String> names) {
+        List<List<String>> chunks = QueryParameterChunks.split(names, QueryParameterChunks.MAX_IN_CLAUSE_SIZE);
+        return this.transactionTemplate.execute(transactionStatus -> {
+            int[] result = new int[chunks.size()];
+            for (int i = 0; i < chunks.size(); i++) {
+                result[i] = entityManager.createQuery(UPDATE_STATUS_JPQL)
+                        .setParameter("status", status)
+                        .setParameter("names", chunks.get(i))
+                        .executeUpdate();
+            }
+            this.userChangeRecorder.recordUpdatedByNames(names);
+            return result;
+        });
+    }
+}
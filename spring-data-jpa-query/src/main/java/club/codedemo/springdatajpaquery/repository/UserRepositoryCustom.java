@@ -1,10 +1,14 @@
 package club.codedemo.springdatajpaquery.repository;
 
 import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * 9.2 Criteria 动态查询 自定义接口
@@ -16,4 +20,60 @@ public interface UserRepositoryCustom {
      * @return 邮箱包含在集合中的所有用户的列表
      */
     List<User> findUserByEmailsUsingCriteria(Set<String> emails);
+
+    /**
+     * 使用Criteria动态查询 可利用索引的写法
+     * 方法作用：和 findUserByEmailsUsingCriteria 相同，但按邮箱的写法分别生成查询条件：
+     * 1. 不含通配符(%、_)的邮箱使用 IN 查询，邮箱按补齐到2的幂次的块分批查询，以复用执行计划；
+     * 2. 仅以 % 结尾的前缀写法(如 abc%)改写为范围查询 email >= 'abc' AND email < 'abd'，可以使用索引；
+     * 3. 其它写法仍然使用 LIKE。
+     * 同一用户匹配多个条件时只返回一次
+     * @return 邮箱包含在集合中的所有用户的列表
+     */
+    List<User> findUserByEmailsUsingIndexedCriteria(Set<String> emails);
+
+    /**
+     * 使用流式查询遍历全部用户
+     * 方法作用：按 id 顺序逐条读取全部用户并交给 consumer 处理，处理完的实体立即从持久化上下文中分离，
+     * 因此无论数据表有多大，内存占用都保持不变
+     * @param consumer 用户处理器
+     * @return 处理的用户数
+     */
+    long forEachUserUsingStream(Consumer<User> consumer);
+
+    /**
+     * 按 id 批量获取用户
+     * 方法作用：基于 Hibernate 的 byMultipleIds，将 id 按补齐到2的幂次的块(每块最多 512 个)分批查询，
+     * 10 万个 id 固定需要 196 次查询；已在持久化上下文中的用户直接返回，不再查询
+     * @param ids 用户 id，可以重复
+     * @return id 到用户的映射，按 id 的传入顺序排列，不包含不存在的 id
+     */
+    Map<Long, User> findUsersByIdsUsingMultiLoad(Collection<Long> ids);
+
+    /**
+     * 按姓名批量获取用户
+     * 方法作用：和 findUserByNameListUsingJPQL 相同，但将姓名按补齐到2的幂次的块(每块最多 512 个)分批查询，
+     * 不会超出数据库的参数上限，且只产生少数几种 SQL
+     * @param names 姓名，可以重复
+     * @return 姓名到该姓名的所有用户(按 id 排序)的映射，按姓名的传入顺序排列，不包含不存在的姓名；
+     * 数据库的排序规则不区分大小写等情况下，与传入值不同的姓名以数据库中保存的值为键，排在最后
+     */
+    Map<String, List<User>> findUsersByNamesUsingChunks(Collection<String> names);
+
+    /**
+     * 12.1 动态过滤条件 键集分页
+     * 方法作用：获取满足过滤条件的用户，从续页令牌所指的位置开始按 id 升序返回一页
+     * @param filter 过滤条件
+     * @param continuationToken 上一页返回的续页令牌，首页为 null
+     * @param size 每页条数
+     * @return 带续页令牌的用户切片
+     */
+    KeysetSlice<User> findUsersByFilter(UserFilter filter, String continuationToken, int size);
+
+    /**
+     * 12.2 动态过滤条件 键集分页 DTO投影
+     * 方法作用：和 findUsersByFilter 相同，但只查询 id 和 name
+     * @return 带续页令牌的用户摘要切片
+     */
+    KeysetSlice<UserSummaryDto> findUserSummariesByFilter(UserFilter filter, String continuationToken, int size);
 }
@@ -1,35 +1,301 @@
 package club.codedemo.springdatajpaquery.repository;
 
 import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * 9.2 Criteria 动态查询 自定义实现
+ * 均为查询，在只读事务中执行，启用读写分离时访问只读副本
+ */
+@Transactional(readOnly = true)
 public class UserRepositoryCustomImpl implements UserRepositoryCustom {
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * 按查询形态缓存的 JPQL，同一形态的 Criteria 只构建一次
+     */
+    private final CompiledQueryCache compiledQueries = new CompiledQueryCache();
+
     @Override
     public List<User> findUserByEmailsUsingCriteria(Set<String> emails) {
+        if (emails.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 邮箱按块拆分并补齐到2的幂次，使不同个数的调用共用少数几种查询形态，且每条语句的参数个数不超过数据库的上限；
+        // 同一用户可能匹配不同块中的模式，按 id 去重
+        Map<Long, User> users = new LinkedHashMap<>();
+        for (List<String> chunk : QueryParameterChunks.split(emails, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            for (User user : this.findUserByEmailLikes(chunk)) {
+                users.putIfAbsent(user.getId(), user);
+            }
+        }
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * 查询 email 匹配任意一个模式的用户，values 的长度为2的幂次
+     */
+    private List<User> findUserByEmailLikes(List<String> values) {
+        int size = values.size();
+        String jpql = this.compiledQueries.get("emailLike:" + size, entityManager, cb -> {
+            CriteriaQuery<User> query = cb.createQuery(User.class);
+            Root<User> user = query.from(User.class);
+
+            Path<String> emailPath = user.get("email");
+
+            List<Predicate> predicates = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                predicates.add(cb.like(emailPath, cb.parameter(String.class, "email" + i)));
+            }
+            return query.select(user)
+                    .where(cb.or(predicates.toArray(new Predicate[predicates.size()])));
+        });
+
+        TypedQuery<User> query = entityManager.createQuery(jpql, User.class);
+        for (int i = 0; i < size; i++) {
+            query.setParameter("email" + i, values.get(i));
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<User> findUserByEmailsUsingIndexedCriteria(Set<String> emails) {
+        List<String> exactEmails = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> patterns = new ArrayList<>();
+        for (String email : emails) {
+            if (!hasWildcard(email)) {
+                exactEmails.add(email);
+            } else if (isPrefixPattern(email)) {
+                prefixes.add(email.substring(0, email.length() - 1));
+            } else {
+                patterns.add(email);
+            }
+        }
+
+        Map<Long, User> users = new LinkedHashMap<>();
+        for (List<String> chunk : QueryParameterChunks.split(exactEmails, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            this.putAll(users, this.findUserByEmailIn(chunk));
+        }
+        // 每个前缀占用两个参数
+        for (List<String> chunk : QueryParameterChunks.split(prefixes, QueryParameterChunks.MAX_IN_CLAUSE_SIZE / 2)) {
+            this.putAll(users, this.findUserByEmailPrefixes(chunk));
+        }
+        for (List<String> chunk : QueryParameterChunks.split(patterns, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            this.putAll(users, this.findUserByEmailsUsingCriteria(new HashSet<>(chunk)));
+        }
+        return new ArrayList<>(users.values());
+    }
+
+    private List<User> findUserByEmailIn(List<String> emails) {
+        String jpql = this.compiledQueries.get("emailIn", entityManager, cb -> {
+            CriteriaQuery<User> query = cb.createQuery(User.class);
+            Root<User> user = query.from(User.class);
+            ParameterExpression<Collection> emailsParameter = cb.parameter(Collection.class, "emails");
+
+            return query.select(user)
+                    .where(user.get("email").in(emailsParameter));
+        });
+
+        return entityManager.createQuery(jpql, User.class)
+                .setParameter("emails", emails)
+                .getResultList();
+    }
+
+    private List<User> findUserByEmailPrefixes(List<String> prefixes) {
+        int size = prefixes.size();
+        String jpql = this.compiledQueries.get("emailPrefix:" + size, entityManager, cb -> {
+            CriteriaQuery<User> query = cb.createQuery(User.class);
+            Root<User> user = query.from(User.class);
+
+            Path<String> emailPath = user.get("email");
+
+            List<Predicate> predicates = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                predicates.add(cb.and(cb.greaterThanOrEqualTo(emailPath, cb.parameter(String.class, "lower" + i)),
+                        cb.lessThan(emailPath, cb.parameter(String.class, "upper" + i))));
+            }
+            return query.select(user)
+                    .where(cb.or(predicates.toArray(new Predicate[predicates.size()])));
+        });
+
+        TypedQuery<User> query = entityManager.createQuery(jpql, User.class);
+        for (int i = 0; i < size; i++) {
+            query.setParameter("lower" + i, prefixes.get(i));
+            query.setParameter("upper" + i, upperBound(prefixes.get(i)));
+        }
+        return query.getResultList();
+    }
+
+    private void putAll(Map<Long, User> users, List<User> found) {
+        for (User user : found) {
+            users.putIfAbsent(user.getId(), user);
+        }
+    }
+
+    /**
+     * 是否包含 LIKE 通配符(或转义符)
+     */
+    private static boolean hasWildcard(String email) {
+        return email.indexOf('%') >= 0 || email.indexOf('_') >= 0 || email.indexOf('\\') >= 0;
+    }
 
+    /**
+     * 是否为仅以一个 % 结尾的前缀写法，如 abc%
+     */
+    private static boolean isPrefixPattern(String email) {
+        if (email.length() < 2 || !email.endsWith("%")) {
+            return false;
+        }
+        String prefix = email.substring(0, email.length() - 1);
+        return !hasWildcard(prefix) && prefix.charAt(prefix.length() - 1) != Character.MAX_VALUE;
+    }
+
+    /**
+     * 获取前缀的上界：将最后一个字符加1，如 abc -> abd
+     */
+    static String upperBound(String prefix) {
+        int last = prefix.length() - 1;
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    @Override
+    public long forEachUserUsingStream(Consumer<User> consumer) {
+        long count = 0;
+        try (Stream<User> users = entityManager.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, Integer.valueOf(UserRepository.STREAM_FETCH_SIZE))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()) {
+            for (User user : (Iterable<User>) users::iterator) {
+                consumer.accept(user);
+                entityManager.detach(user);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Map<Long, User> findUsersByIdsUsingMultiLoad(Collection<Long> ids) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(User.class);
+        org.hibernate.engine.spi.PersistenceContext persistenceContext = session.getPersistenceContext();
+
+        Map<Long, User> found = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Object user = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (user != null) {
+                found.put(id, (User) user);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        // 持久化上下文已在上面检查过，不再开启 Hibernate 的 session check：它会剔除已加载的 id，破坏补齐后的块长度
+        for (List<Long> chunk : QueryParameterChunks.split(missing, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            List<User> users = entityManager.unwrap(Session.class)
+                    .byMultipleIds(User.class)
+                    .withBatchSize(chunk.size())
+                    .enableOrderedReturn(false)
+                    .multiLoad(chunk);
+            for (User user : users) {
+                found.put(user.getId(), user);
+            }
+        }
+
+        Map<Long, User> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, List<User>> findUsersByNamesUsingChunks(Collection<String> names) {
+        Map<String, List<User>> result = new LinkedHashMap<>();
+        Set<String> distinctNames = new LinkedHashSet<>(names);
+        for (String name : distinctNames) {
+            result.put(name, new ArrayList<>());
+        }
+
+        for (List<String> chunk : QueryParameterChunks.split(distinctNames, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)) {
+            List<User> users = entityManager.createQuery("SELECT u FROM User u WHERE u.name IN :names ORDER BY u.id", User.class)
+                    .setParameter("names", chunk)
+                    .getResultList();
+            // 数据库的排序规则可能与 Java 的 equals 不一致(如不区分大小写)，返回的姓名不一定是传入的键
+            for (User user : users) {
+                result.computeIfAbsent(user.getName(), name -> new ArrayList<>()).add(user);
+            }
+        }
+
+        result.values().removeIf(List::isEmpty);
+        return result;
+    }
+
+    @Override
+    public KeysetSlice<User> findUsersByFilter(UserFilter filter, String continuationToken, int size) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<User> query = cb.createQuery(User.class);
         Root<User> user = query.from(User.class);
+        query.select(user);
+        return this.findByFilter(query, user, filter, continuationToken, size, User::getId);
+    }
 
-        Path<String> emailPath = user.get("email");
+    @Override
+    public KeysetSlice<UserSummaryDto> findUserSummariesByFilter(UserFilter filter, String continuationToken, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserSummaryDto> query = cb.createQuery(UserSummaryDto.class);
+        Root<User> user = query.from(User.class);
+        query.select(cb.construct(UserSummaryDto.class, user.get("id"), user.get("name")));
+        return this.findByFilter(query, user, filter, continuationToken, size, UserSummaryDto::getId);
+    }
 
-        List<Predicate> predicates = new ArrayList<>();
-        for (String email : emails) {
-            predicates.add(cb.like(emailPath, email));
-        }
-        query.select(user)
-                .where(cb.or(predicates.toArray(new Predicate[predicates.size()])));
+    /**
+     * 在过滤条件之后追加 id > 令牌中的 id，按 id 升序多取1条记录来判断是否有下一页
+     */
+    private <T> KeysetSlice<T> findByFilter(CriteriaQuery<T> query, Root<User> user, UserFilter filter,
+                                            String continuationToken, int size, Function<T, Long> idExtractor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Path<Long> id = user.get("id");
+        query.where(filter.toPredicate(user, query, cb), cb.greaterThan(id, KeysetSlice.decode(continuationToken)))
+                .orderBy(cb.asc(id));
 
-        return entityManager.createQuery(query)
+        List<T> content = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
                 .getResultList();
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+        return KeysetSlice.of(new SliceImpl<>(content, PageRequest.of(0, size), hasNext), idExtractor);
     }
 }
@@ -0,0 +1,105 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 13 用户排序白名单
+ * 调用方只能按登记过的排序键排序，每个排序键对应一个实体属性，且都有可用于排序的索引，数据库可以按索引顺序读取而无需排序：
+ * id：主键；name：idx_user_name；nameLength：计算列 name_length 及其索引 idx_user_name_length。
+ * 按姓名长度排序不再需要 JpaSort.unsafe("LENGTH(name)")，也不会把任意表达式拼接进查询；
+ * 未登记的排序键及忽略大小写排序(会在索引列上套用 upper 函数)均以 IllegalArgumentException 拒绝
+ */
+public final class UserSort {
+
+    /**
+     * 排序键 -> 实体属性
+     */
+    private static final Map<String, String> PROPERTIES;
+
+    /**
+     * 排序键 -> 支持该排序的索引
+     */
+    private static final Map<String, String> INDEXES;
+
+    static {
+        Map<String, String> properties = new LinkedHashMap<>();
+        Map<String, String> indexes = new LinkedHashMap<>();
+        properties.put("id", "id");
+        indexes.put("id", "PRIMARY_KEY");
+        properties.put("name", "name");
+        indexes.put("name", "idx_user_name");
+        properties.put("nameLength", "nameLength");
+        indexes.put("nameLength", "idx_user_name_length");
+        PROPERTIES = Collections.unmodifiableMap(properties);
+        INDEXES = Collections.unmodifiableMap(indexes);
+    }
+
+    private UserSort() {
+    }
+
+    /**
+     * 按排序键升序排序
+     * @throws IllegalArgumentException 排序键未登记
+     */
+    public static Sort of(String key) {
+        return of(key, Sort.Direction.ASC);
+    }
+
+    /**
+     * 按排序键排序
+     * @throws IllegalArgumentException 排序键未登记
+     */
+    public static Sort of(String key, Sort.Direction direction) {
+        return Sort.by(direction, property(key));
+    }
+
+    /**
+     * 将调用方传入的排序(如 Web 请求中的 sort=nameLength,desc)转换为登记过的排序
+     * @param requested 以排序键表示的排序
+     * @return 以实体属性表示的排序，requested 未排序时原样返回
+     * @throws IllegalArgumentException 包含未登记的排序键或忽略大小写排序
+     */
+    public static Sort from(Sort requested) {
+        if (requested.isUnsorted()) {
+            return requested;
+        }
+        Sort sort = Sort.unsorted();
+        for (Sort.Order order : requested) {
+            if (order.isIgnoreCase()) {
+                throw new IllegalArgumentException("Case-insensitive sort is not supported: " + order.getProperty());
+            }
+            sort = sort.and(Sort.by(new Sort.Order(order.getDirection(), property(order.getProperty()),
+                    order.getNullHandling())));
+        }
+        return sort;
+    }
+
+    /**
+     * 全部排序键
+     */
+    public static Set<String> keys() {
+        return PROPERTIES.keySet();
+    }
+
+    /**
+     * 支持该排序键的索引
+     * @throws IllegalArgumentException 排序键未登记
+     */
+    public static String index(String key) {
+        property(key);
+        return INDEXES.get(key);
+    }
+
+    private static String property(String key) {
+        String property = PROPERTIES.get(key);
+        if (property == null) {
+            throw new IllegalArgumentException("Unsupported sort key: " + key + ", expected one of " + keys());
+        }
+        return property;
+    }
+}
@@ -0,0 +1,102 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 用户总数估算
+ * 供只需要大致总数的分页调用方使用，避免每次分页都执行 count(*)：
+ * cached 模式(默认)：后台定时执行 count(*)，返回最近一次的结果；
+ * statistics 模式：直接读取数据库维护的表统计信息(H2、MySQL)，不扫描数据表，其它数据库退回 cached 模式
+ */
+@Service
+public class UserCountEstimator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCountEstimator.class);
+
+    private static final String H2_STATISTICS_SQL = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES " +
+            "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = 'USER'";
+
+    private static final String MYSQL_STATISTICS_SQL = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'user'";
+
+    private final UserRepository userRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String statisticsSql;
+
+    private volatile long cachedCount = -1;
+
+    public UserCountEstimator(UserRepository userRepository, JdbcTemplate jdbcTemplate,
+                              @Value("${codedemo.user-count.mode:cached}") String mode) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.statisticsSql = "statistics".equals(mode) ? statisticsSql(jdbcTemplate) : null;
+    }
+
+    private static String statisticsSql(JdbcTemplate jdbcTemplate) {
+        try {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if ("H2".equals(product)) {
+                return H2_STATISTICS_SQL;
+            }
+            if ("MySQL".equals(product)) {
+                return MYSQL_STATISTICS_SQL;
+            }
+            logger.warn("Table statistics are not supported on {}, falling back to cached count", product);
+        } catch (Exception e) {
+            logger.warn("Unable to detect database product, falling back to cached count", e);
+        }
+        return null;
+    }
+
+    /**
+     * 后台刷新缓存的总数
+     */
+    @Scheduled(fixedDelayString = "${codedemo.user-count.refresh-interval-millis:60000}")
+    public void refresh() {
+        if (this.statisticsSql == null) {
+            this.cachedCount = this.userRepository.count();
+        }
+    }
+
+    /**
+     * 获取大致的用户总数
+     * @return 用户总数的估计值，cached 模式下尚未刷新过时执行一次 count(*)
+     */
+    public long estimate() {
+        if (this.statisticsSql != null) {
+            Long count = this.jdbcTemplate.queryForObject(this.statisticsSql, Long.class);
+            return count == null ? 0 : count;
+        }
+        if (this.cachedCount < 0) {
+            this.refresh();
+        }
+        return this.cachedCount;
+    }
+
+    /**
+     * 4.6 Native 分页 使用大致总数
+     * 方法作用：获取全部用户，并按传入的Pageable进行分页，总数为估计值
+     * 要点：估计值小于当前页已确定的记录数时，以已确定的记录数为准
+     * @return 分页用户Page
+     */
+    public Page<User> findAllUsersWithApproximateCount(Pageable pageable) {
+        Slice<User> users = this.userRepository.findAllUsersWithSliceUsingNative(pageable);
+        long known = pageable.getOffset() + users.getNumberOfElements() + (users.hasNext() ? 1 : 0);
+        return new PageImpl<>(users.getContent(), pageable, Math.max(this.estimate(), known));
+    }
+}
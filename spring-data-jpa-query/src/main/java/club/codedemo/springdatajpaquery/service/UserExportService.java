@@ -0,0 +1,165 @@
+package club.codedemo.springdatajpaquery.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用户导出
+ * 按 id 顺序将全部用户写入输出流，代替 findAll(Sort) 后再整体序列化：
+ * 通过 StatelessSession 执行只查询列值的 HQL，以只进游标(ScrollMode.FORWARD_ONLY)逐行读取，
+ * 不创建实体、不进入持久化上下文、不保存脏检查快照，每行读取后立即写出，内存占用与用户数无关。
+ * 数据库驱动须按 fetch size 分批返回结果才能真正流式读取：H2 需在连接地址中加上 LAZY_QUERY_EXECUTION=1，MySQL 需设置 useCursorFetch=true
+ */
+@Service
+public class UserExportService {
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    /**
+     * 每次从数据库抓取的行数
+     */
+    static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String EXPORT_QUERY = "SELECT u.id, u.name, u.status, u.email FROM User u ORDER BY u.id";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public UserExportService(EntityManagerFactory entityManagerFactory) {
+        // 使用时才 unwrap：EntityManagerFactory 在后台构建时(fast-startup)，创建本 Bean 不必等待其构建完成
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * 导出全部用户
+     * @param outputStream 输出流，导出完成后刷新但不关闭
+     * @return 导出的用户数
+     */
+    public long export(Format format, OutputStream outputStream) throws IOException {
+        try (StatelessSession session = this.entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults rows = session.createQuery(EXPORT_QUERY)
+                    .setFetchSize(EXPORT_FETCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                RowWriter writer = format == Format.CSV ? new CsvRowWriter(outputStream) : new JsonRowWriter(outputStream);
+                long count = 0;
+                while (rows.next()) {
+                    writer.write((Long) rows.get(0), (String) rows.get(1), (Integer) rows.get(2), (String) rows.get(3));
+                    count++;
+                }
+                writer.finish();
+                return count;
+            } finally {
+                // 只读事务，回滚即可结束
+                transaction.rollback();
+            }
+        }
+    }
+
+    private interface RowWriter {
+
+        void write(Long id, String name, Integer status, String email) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * CSV：首行为列名，含逗号、引号或换行的值加引号，值中的引号写作两个引号
+     */
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 8192);
+            this.writer.write("id,name,status,email\n");
+        }
+
+        @Override
+        public void write(Long id, String name, Integer status, String email) throws IOException {
+            this.writer.write(String.valueOf(id));
+            this.writer.write(',');
+            this.writeValue(name);
+            this.writer.write(',');
+            if (status != null) {
+                this.writer.write(String.valueOf(status));
+            }
+            this.writer.write(',');
+            this.writeValue(email);
+            this.writer.write('\n');
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                this.writer.write(value);
+                return;
+            }
+            this.writer.write('"');
+            this.writer.write(value.replace("\"", "\"\""));
+            this.writer.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * JSON：对象数组，字段与 User 的属性相同
+     */
+    private static class JsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        JsonRowWriter(OutputStream outputStream) throws IOException {
+            this.generator = JSON_FACTORY.createGenerator(outputStream);
+            this.generator.writeStartArray();
+        }
+
+        @Override
+        public void write(Long id, String name, Integer status, String email) throws IOException {
+            this.generator.writeStartObject();
+            this.generator.writeNumberField("id", id);
+            this.generator.writeStringField("name", name);
+            if (status == null) {
+                this.generator.writeNullField("status");
+            } else {
+                this.generator.writeNumberField("status", status);
+            }
+            this.generator.writeStringField("email", email);
+            this.generator.writeEndObject();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            this.generator.writeEndArray();
+            this.generator.close();
+        }
+    }
+}
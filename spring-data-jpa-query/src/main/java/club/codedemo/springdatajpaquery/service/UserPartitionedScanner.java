@@ -0,0 +1,236 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 按 id 范围分区并行扫描全部用户
+ * 按 MIN(id)、MAX(id) 将 id 划分为若干等宽的范围(分区数为线程数的 partitions-per-thread 倍，以平衡 id 分布不均的分区)，
+ * 由固定数量的线程逐个领取分区；每个分区使用独立的 EntityManager，按 id 键集分页只读加载(不进入二级缓存)，交给 UserScanProcessor 处理，
+ * 每页处理完后记录检查点并清空 EntityManager。
+ * 每个扫描线程在扫描期间占用一个数据库连接，线程数不超过连接池大小减去 reserved-connections，预留的连接供检查点及处理器写入使用。
+ * 扫描开始后新增的、id 大于划分时 MAX(id) 的用户不在扫描范围内
+ */
+@Service
+public class UserPartitionedScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPartitionedScanner.class);
+
+    private static final String PAGE_QUERY = "SELECT u FROM User u WHERE u.id > :lastId AND u.id <= :toId ORDER BY u.id";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final UserScanCheckpoints checkpoints;
+
+    private final int maxParallelism;
+
+    private final int defaultParallelism;
+
+    private final int partitionsPerThread;
+
+    private final int pageSize;
+
+    private final long progressIntervalMillis;
+
+    public UserPartitionedScanner(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+                                  UserScanCheckpoints checkpoints, DataSource dataSource,
+                                  @Value("${codedemo.user-scan.parallelism:0}") int parallelism,
+                                  @Value("${codedemo.user-scan.reserved-connections:2}") int reservedConnections,
+                                  @Value("${codedemo.user-scan.partitions-per-thread:4}") int partitionsPerThread,
+                                  @Value("${codedemo.user-scan.page-size:1000}") int pageSize,
+                                  @Value("${codedemo.user-scan.progress-interval-millis:10000}") long progressIntervalMillis) {
+        Assert.isTrue(partitionsPerThread > 0, "partitionsPerThread must be positive");
+        Assert.isTrue(pageSize > 0, "pageSize must be positive");
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.checkpoints = checkpoints;
+        this.maxParallelism = Math.max(1, UserRepositoryAsync.connectionPoolSize(dataSource) - reservedConnections);
+        this.defaultParallelism = parallelism > 0 ? Math.min(parallelism, this.maxParallelism) : this.maxParallelism;
+        this.partitionsPerThread = partitionsPerThread;
+        this.pageSize = pageSize;
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * 以默认线程数(codedemo.user-scan.parallelism，0 表示连接池允许的最大线程数)扫描全部用户
+     * @see #scan(String, int, UserScanProcessor)
+     */
+    public UserScanProgress scan(String job, UserScanProcessor processor) {
+        return this.scan(job, this.defaultParallelism, processor);
+    }
+
+    /**
+     * 扫描全部用户，阻塞至扫描完成
+     * 已有该任务的检查点时沿用其分区，从各分区的检查点继续，已完成的分区不再扫描；全部完成后删除检查点
+     * @param job 任务名，用于保存及恢复检查点
+     * @param parallelism 线程数，超过连接池允许的最大线程数时按最大线程数执行
+     * @param processor 每页用户的处理器，在各扫描线程中并发调用
+     * @return 扫描完成时的进度
+     * @throws IllegalStateException 处理器抛出异常或扫描被中断时，已处理的位置保存在检查点中
+     */
+    public UserScanProgress scan(String job, int parallelism, UserScanProcessor processor) {
+        Assert.isTrue(parallelism > 0, "parallelism must be positive");
+        int threads = Math.min(parallelism, this.maxParallelism);
+        if (threads < parallelism) {
+            logger.warn("User scan {}: parallelism {} exceeds connection pool, using {}", job, parallelism, threads);
+        }
+
+        List<UserScanCheckpoints.Partition> partitions = this.checkpoints.findPartitions(job);
+        if (partitions.isEmpty()) {
+            partitions = this.split(threads * this.partitionsPerThread);
+            if (partitions.isEmpty()) {
+                return new UserScanProgress(job, 0, 0, 0, 0);
+            }
+            this.checkpoints.savePartitions(job, partitions);
+        } else {
+            logger.info("User scan {}: resuming from checkpoints", job);
+        }
+        List<UserScanCheckpoints.Partition> pending = partitions.stream()
+                .filter(partition -> !partition.isCompleted())
+                .collect(Collectors.toList());
+
+        long start = System.currentTimeMillis();
+        int partitionCount = partitions.size();
+        AtomicInteger completedPartitions = new AtomicInteger(partitionCount - pending.size());
+        AtomicLong processedUsers = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-scan-"));
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (UserScanCheckpoints.Partition partition : pending) {
+                completionService.submit(() -> {
+                    if (this.scanPartition(job, partition, processor, processedUsers, failed)) {
+                        completedPartitions.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            Throwable failure = null;
+            for (int done = 0; done < pending.size(); ) {
+                Future<Void> future = completionService.poll(this.progressIntervalMillis, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    logger.info("{}", new UserScanProgress(job, partitionCount, completedPartitions.get(),
+                            processedUsers.get(), System.currentTimeMillis() - start));
+                    continue;
+                }
+                done++;
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            UserScanProgress progress = new UserScanProgress(job, partitionCount, completedPartitions.get(),
+                    processedUsers.get(), System.currentTimeMillis() - start);
+            if (failure != null) {
+                throw new IllegalStateException("User scan " + job + " failed at " + progress +
+                        ", rerun the job to resume from checkpoints", failure);
+            }
+            this.checkpoints.delete(job);
+            logger.info("User scan {} completed: {}", job, progress);
+            return progress;
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User scan " + job + " interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 扫描一个分区
+     * @return 分区是否已扫描完毕；其它分区失败时提前结束，返回 false
+     */
+    private boolean scanPartition(String job, UserScanCheckpoints.Partition partition, UserScanProcessor processor,
+                                  AtomicLong processedUsers, AtomicBoolean failed) throws Exception {
+        EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+        try {
+            long lastId = partition.getLastId();
+            while (lastId < partition.getToId()) {
+                if (failed.get()) {
+                    return false;
+                }
+                List<User> users = entityManager.createQuery(PAGE_QUERY, User.class)
+                        .setParameter("lastId", lastId)
+                        .setParameter("toId", partition.getToId())
+                        .setMaxResults(this.pageSize)
+                        .setHint(QueryHints.HINT_READONLY, true)
+                        .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                        .getResultList();
+                if (users.isEmpty()) {
+                    break;
+                }
+                processor.process(users);
+                lastId = users.get(users.size() - 1).getId();
+                this.checkpoints.saveLastId(job, partition.getIndex(), lastId);
+                processedUsers.addAndGet(users.size());
+                entityManager.clear();
+                if (users.size() < this.pageSize) {
+                    break;
+                }
+            }
+            this.checkpoints.complete(job, partition.getIndex());
+            return true;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * 将 [MIN(id), MAX(id)] 划分为至多 count 个等宽的分区
+     */
+    private List<UserScanCheckpoints.Partition> split(int count) {
+        List<UserScanCheckpoints.Partition> partitions = new ArrayList<>(count);
+        Long[] bounds = this.jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM user",
+                (rs, rowNum) -> new Long[]{rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        if (bounds == null || bounds[0] == null) {
+            return partitions;
+        }
+        long min = bounds[0];
+        long max = bounds[1];
+        long width = (max - min) / count + 1;
+        for (long from = min; from <= max; from += width) {
+            long to = Math.min(from + width - 1, max);
+            partitions.add(new UserScanCheckpoints.Partition(partitions.size(), from, to, from - 1, false));
+        }
+        return partitions;
+    }
+
+    /**
+     * 默认线程数
+     */
+    public int getDefaultParallelism() {
+        return this.defaultParallelism;
+    }
+}
@@ -0,0 +1,189 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * UserRepository 的异步门面
+ * 在专用的有界线程池中执行查询并返回 CompletableFuture，Web 层可以直接返回该 Future，等待数据库期间不占用 Servlet 线程。
+ * 线程数(默认)等于 Hikari 连接池的最大连接数：每个任务最多占用一个连接，线程数不超过连接数时，
+ * 任务不会因等待连接而相互阻塞(连接池饥饿)；超出线程数的任务在队列中排队，队列满时立即以 TaskRejectedException 失败，
+ * 而不是退回调用线程执行。
+ * 运行在 Java 21 及以上版本时，可以设置 codedemo.user-repository-async.virtual-threads=true 改用虚拟线程，
+ * 此时并发数仍由同样大小的信号量限制，等待许可的任务数不超过 queue-capacity，超出时在提交时即以 TaskRejectedException 失败。
+ * 线程池不注册为 Spring Bean，以免替换 Spring Boot 默认的 applicationTaskExecutor(@Async 使用)
+ */
+@Service
+public class UserRepositoryAsync implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRepositoryAsync.class);
+
+    /**
+     * 无法获取 Hikari 连接池大小时使用的线程数，与 Hikari 的默认 maximumPoolSize 相同
+     */
+    static final int DEFAULT_POOL_SIZE = 10;
+
+    private final UserRepository userRepository;
+
+    private final Executor executor;
+
+    private final ExecutorService virtualThreadExecutor;
+
+    private final ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    private final int poolSize;
+
+    public UserRepositoryAsync(UserRepository userRepository, DataSource dataSource,
+                               @Value("${codedemo.user-repository-async.pool-size:0}") int poolSize,
+                               @Value("${codedemo.user-repository-async.queue-capacity:1000}") int queueCapacity,
+                               @Value("${codedemo.user-repository-async.virtual-threads:false}") boolean virtualThreads) {
+        this.userRepository = userRepository;
+        this.poolSize = poolSize > 0 ? poolSize : connectionPoolSize(dataSource);
+        this.virtualThreadExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (this.virtualThreadExecutor != null) {
+            this.threadPoolTaskExecutor = null;
+            this.executor = boundedExecutor(this.virtualThreadExecutor, this.poolSize, queueCapacity);
+        } else {
+            this.threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+            this.threadPoolTaskExecutor.setCorePoolSize(this.poolSize);
+            this.threadPoolTaskExecutor.setMaxPoolSize(this.poolSize);
+            this.threadPoolTaskExecutor.setQueueCapacity(queueCapacity);
+            this.threadPoolTaskExecutor.setThreadNamePrefix("user-repository-");
+            this.threadPoolTaskExecutor.initialize();
+            this.executor = this.threadPoolTaskExecutor;
+        }
+        logger.info("UserRepository async executor: {} {}", this.poolSize,
+                this.virtualThreadExecutor != null ? "concurrent virtual threads" : "platform threads");
+    }
+
+    /**
+     * 连接池的最大连接数
+     */
+    static int connectionPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            logger.warn("Unable to detect connection pool size", e);
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * 为每个任务一个线程的执行器(虚拟线程)加上与线程池相同的限制：最多 poolSize 个任务同时执行，另有最多 queueCapacity 个任务等待；
+     * 在提交时(而不是在新线程中)获取准入许可，已满时不创建线程，直接以 TaskRejectedException 拒绝
+     */
+    static Executor boundedExecutor(ExecutorService threadPerTaskExecutor, int poolSize, int queueCapacity) {
+        Semaphore admitted = new Semaphore(poolSize + queueCapacity);
+        Semaphore running = new Semaphore(poolSize);
+        return task -> {
+            if (!admitted.tryAcquire()) {
+                throw new TaskRejectedException("UserRepository async executor is saturated: "
+                        + poolSize + " running, " + queueCapacity + " waiting");
+            }
+            try {
+                threadPerTaskExecutor.execute(() -> {
+                    running.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                        admitted.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                admitted.release();
+                throw new TaskRejectedException("UserRepository async executor has been shut down", e);
+            }
+        };
+    }
+
+    /**
+     * 通过反射调用 Java 21 的 Executors.newVirtualThreadPerTaskExecutor()，项目仍以 Java 8 编译
+     * @return 当前 JVM 不支持虚拟线程时返回 null，退回平台线程池
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not supported on Java {}, falling back to platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * 并发执行查询的最大数量
+     */
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+
+    /**
+     * 在专用线程池中执行任意的 UserRepository 调用
+     * @param query 查询，在线程池中执行
+     * @return 查询结果，线程池及队列已满时以 TaskRejectedException 失败
+     */
+    public <T> CompletableFuture<T> submit(Function<UserRepository, T> query) {
+        try {
+            return CompletableFuture.supplyAsync(() -> query.apply(this.userRepository), this.executor);
+        } catch (TaskRejectedException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    public CompletableFuture<Optional<User>> findById(Long id) {
+        return this.submit(userRepository -> userRepository.findById(id));
+    }
+
+    public CompletableFuture<Collection<User>> findAllActiveUsersUsingJPQL() {
+        return this.submit(UserRepository::findAllActiveUsersUsingJPQL);
+    }
+
+    public CompletableFuture<List<User>> findUserByStatusUsingJPQL(Integer status) {
+        return this.submit(userRepository -> userRepository.findUserByStatusUsingJPQL(status));
+    }
+
+    public CompletableFuture<List<User>> findUserByStatusAndNameUsingJPQL(Integer status, String name) {
+        return this.submit(userRepository -> userRepository.findUserByStatusAndNameUsingJPQL(status, name));
+    }
+
+    public CompletableFuture<List<User>> findUserByNameListUsingJPQL(Collection<String> names) {
+        return this.submit(userRepository -> userRepository.findUserByNameListUsingJPQL(names));
+    }
+
+    @Override
+    public void destroy() {
+        if (this.threadPoolTaskExecutor != null) {
+            this.threadPoolTaskExecutor.shutdown();
+        }
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdown();
+        }
+    }
+}
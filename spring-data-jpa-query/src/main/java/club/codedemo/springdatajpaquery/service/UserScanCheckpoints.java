@@ -0,0 +1,120 @@
+package club.codedemo.springdatajpaquery.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 分区扫描的检查点
+ * 保存在 user_scan_checkpoint 中：每个任务(job)的分区范围，以及每个分区已处理到的 id。
+ * 扫描失败或进程退出后以相同的任务名重新扫描，将沿用保存的分区并从各分区的检查点继续；扫描全部完成后删除该任务的检查点
+ */
+@Component
+public class UserScanCheckpoints {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserScanCheckpoints(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 获取任务的全部分区，任务不存在时返回空列表
+     */
+    public List<Partition> findPartitions(String job) {
+        return this.jdbcTemplate.query("SELECT partition_index, from_id, to_id, last_id, completed " +
+                        "FROM user_scan_checkpoint WHERE job = ? ORDER BY partition_index",
+                (rs, rowNum) -> new Partition(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getBoolean(5)),
+                job);
+    }
+
+    /**
+     * 保存新任务的分区
+     */
+    public void savePartitions(String job, List<Partition> partitions) {
+        this.jdbcTemplate.batchUpdate("INSERT INTO user_scan_checkpoint " +
+                        "(job, partition_index, from_id, to_id, last_id, completed) VALUES (?, ?, ?, ?, ?, ?)",
+                partitions, partitions.size(), (ps, partition) -> {
+                    ps.setString(1, job);
+                    ps.setInt(2, partition.getIndex());
+                    ps.setLong(3, partition.getFromId());
+                    ps.setLong(4, partition.getToId());
+                    ps.setLong(5, partition.getLastId());
+                    ps.setBoolean(6, partition.isCompleted());
+                });
+    }
+
+    /**
+     * 记录分区已处理到的 id
+     */
+    public void saveLastId(String job, int partitionIndex, long lastId) {
+        this.jdbcTemplate.update("UPDATE user_scan_checkpoint SET last_id = ? WHERE job = ? AND partition_index = ?",
+                lastId, job, partitionIndex);
+    }
+
+    /**
+     * 记录分区已处理完毕
+     */
+    public void complete(String job, int partitionIndex) {
+        this.jdbcTemplate.update("UPDATE user_scan_checkpoint SET completed = TRUE WHERE job = ? AND partition_index = ?",
+                job, partitionIndex);
+    }
+
+    /**
+     * 删除任务的检查点
+     */
+    public void delete(String job) {
+        this.jdbcTemplate.update("DELETE FROM user_scan_checkpoint WHERE job = ?", job);
+    }
+
+    /**
+     * id 范围 (lastId, toId] 中的用户尚待处理；新分区的 lastId 为 fromId - 1
+     */
+    public static class Partition {
+
+        private final int index;
+
+        private final long fromId;
+
+        private final long toId;
+
+        private final long lastId;
+
+        private final boolean completed;
+
+        public Partition(int index, long fromId, long toId, long lastId, boolean completed) {
+            this.index = index;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.lastId = lastId;
+            this.completed = completed;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getFromId() {
+            return fromId;
+        }
+
+        public long getToId() {
+            return toId;
+        }
+
+        public long getLastId() {
+            return lastId;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public String toString() {
+            return "Partition{index=" + index + ", fromId=" + fromId + ", toId=" + toId +
+                    ", lastId=" + lastId + ", completed=" + completed + "}";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+
+import java.util.List;
+
+/**
+ * 分区扫描中对每页用户的处理
+ * 各分区在不同线程中并发调用同一个处理器，实现须线程安全；
+ * 传入的用户由扫描线程的 EntityManager 只读加载，处理完即被清除，修改用户请通过 UserRepository 等写入
+ */
+@FunctionalInterface
+public interface UserScanProcessor {
+
+    /**
+     * @param users 同一分区中按 id 升序的一页用户
+     */
+    void process(List<User> users) throws Exception;
+}
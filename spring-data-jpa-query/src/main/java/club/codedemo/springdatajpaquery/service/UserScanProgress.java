@@ -0,0 +1,68 @@
+package club.codedemo.springdatajpaquery.service;
+
+/**
+ * 分区扫描的进度
+ */
+public class UserScanProgress {
+
+    private final String job;
+
+    private final int partitions;
+
+    private final int completedPartitions;
+
+    private final long processedUsers;
+
+    private final long elapsedMillis;
+
+    public UserScanProgress(String job, int partitions, int completedPartitions, long processedUsers, long elapsedMillis) {
+        this.job = job;
+        this.partitions = partitions;
+        this.completedPartitions = completedPartitions;
+        this.processedUsers = processedUsers;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * 分区总数
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * 已完成的分区数，含此前中断的扫描中已完成的分区
+     */
+    public int getCompletedPartitions() {
+        return completedPartitions;
+    }
+
+    /**
+     * 本次扫描处理的用户数，不含此前中断的扫描中已处理的用户
+     */
+    public long getProcessedUsers() {
+        return processedUsers;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 本次扫描每秒处理的用户数
+     */
+    public long getUsersPerSecond() {
+        return this.elapsedMillis > 0 ? this.processedUsers * 1000 / this.elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "UserScanProgress{job=" + job + ", partitions=" + completedPartitions + "/" + partitions +
+                ", processedUsers=" + processedUsers + ", elapsedMillis=" + elapsedMillis +
+                ", usersPerSecond=" + getUsersPerSecond() + "}";
+    }
+}
@@ -0,0 +1,53 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 在构建 SessionFactory 的过程中注册 Hibernate 事件监听器
+ * 与在 SmartInitializingSingleton 中 unwrap EntityManagerFactory 后注册不同，不需要等待 EntityManagerFactory 构建完成：
+ * fast-startup 下 EntityManagerFactory 在后台线程中构建，上下文刷新不会因注册监听器而阻塞
+ */
+public class EventListenerIntegrator implements Integrator {
+
+    private final Consumer<EventListenerRegistry> registration;
+
+    private EventListenerIntegrator(Consumer<EventListenerRegistry> registration) {
+        this.registration = registration;
+    }
+
+    /**
+     * 通过 hibernate.integrator_provider 注册监听器，可与其它 customizer 注册的 Integrator 共存
+     * @param registration 向 EventListenerRegistry 追加监听器
+     */
+    public static HibernatePropertiesCustomizer customizer(Consumer<EventListenerRegistry> registration) {
+        IntegratorProvider provider = () -> Collections.singletonList(new EventListenerIntegrator(registration));
+        return properties -> properties.merge(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, provider,
+                (existing, added) -> {
+                    List<Integrator> integrators = new ArrayList<>(((IntegratorProvider) existing).getIntegrators());
+                    integrators.addAll(((IntegratorProvider) added).getIntegrators());
+                    return (IntegratorProvider) () -> integrators;
+                });
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        this.registration.accept(serviceRegistry.getService(EventListenerRegistry.class));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
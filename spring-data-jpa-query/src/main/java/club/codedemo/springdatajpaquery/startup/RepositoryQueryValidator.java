@@ -0,0 +1,88 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 仓库查询的校验及预编译
+ * 逐个检查仓库接口中 @Query 声明的语句(含 countQuery)：JPQL 交由 Hibernate 解析，解析结果同时存入 Hibernate 的查询计划缓存；
+ * Native 语句将参数替换为 ? 后在数据库上预编译(H2 等在预编译时检查语句的数据库才能发现错误)。
+ * 在测试中调用即可在构建时发现错误的查询；fast-startup 下仓库延迟初始化，可在启动后于后台调用以预编译查询，见 StartupConfig
+ */
+public class RepositoryQueryValidator {
+
+    /**
+     * Native 语句中的命名参数(:name)及索引参数(?1)
+     */
+    private static final Pattern NATIVE_PARAMETER = Pattern.compile("(?<![:\\w]):[A-Za-z_]\\w*|\\?\\d+");
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RepositoryQueryValidator(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 校验仓库接口中的全部 @Query 语句
+     * @return 错误信息，每项为 "方法: 原因"；为空表示全部通过
+     */
+    public List<String> validate(Class<?> repositoryInterface) {
+        List<String> errors = new ArrayList<>();
+        Method[] methods = repositoryInterface.getMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::toGenericString));
+        EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+        try {
+            for (Method method : methods) {
+                Query query = method.getAnnotation(Query.class);
+                if (query == null) {
+                    continue;
+                }
+                String name = repositoryInterface.getSimpleName() + "." + method.getName();
+                this.validate(entityManager, name, query.value(), query.nativeQuery(), errors);
+                if (StringUtils.hasText(query.countQuery())) {
+                    this.validate(entityManager, name + " (count)", query.countQuery(), query.nativeQuery(), errors);
+                }
+            }
+        } finally {
+            entityManager.close();
+        }
+        return errors;
+    }
+
+    private void validate(EntityManager entityManager, String name, String statement, boolean nativeQuery,
+                          List<String> errors) {
+        // SpEL 表达式(#{...})在执行时才能求值
+        if (statement.contains("#{")) {
+            return;
+        }
+        try {
+            if (nativeQuery) {
+                String sql = NATIVE_PARAMETER.matcher(statement).replaceAll("?");
+                this.jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (PreparedStatement ignored = connection.prepareStatement(sql)) {
+                        return null;
+                    }
+                });
+            } else {
+                entityManager.createQuery(statement);
+            }
+        } catch (RuntimeException e) {
+            errors.add(name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import club.codedemo.springdatajpaquery.repository.UserChangeRepository;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * 启动相关配置
+ * codedemo.startup.warm-up-queries=true 时，应用就绪后在后台预编译仓库中的 @Query 语句，
+ * 使延迟初始化(fast-startup)时的第一次查询不必再等待 Hibernate 解析语句
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupConfig.class);
+
+    /**
+     * 预编译的仓库
+     */
+    static final Class<?>[] REPOSITORIES = {UserRepository.class, UserChangeRepository.class};
+
+    @Bean
+    public StartupTimingReporter startupTimingReporter() {
+        return new StartupTimingReporter();
+    }
+
+    @Bean
+    public RepositoryQueryValidator repositoryQueryValidator(EntityManagerFactory entityManagerFactory,
+                                                             JdbcTemplate jdbcTemplate) {
+        return new RepositoryQueryValidator(entityManagerFactory, jdbcTemplate);
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> queryWarmUp(
+            RepositoryQueryValidator repositoryQueryValidator,
+            @Value("${codedemo.startup.warm-up-queries:false}") boolean warmUpQueries) {
+        return event -> {
+            if (!warmUpQueries) {
+                return;
+            }
+            Thread thread = new Thread(() -> {
+                for (Class<?> repository : REPOSITORIES) {
+                    List<String> errors = repositoryQueryValidator.validate(repository);
+                    if (!errors.isEmpty()) {
+                        logger.warn("Invalid queries in {}: {}", repository.getSimpleName(), errors);
+                    }
+                }
+                logger.info("Repository queries warmed up");
+            }, "query-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+}
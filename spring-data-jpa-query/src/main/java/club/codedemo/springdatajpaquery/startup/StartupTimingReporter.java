@@ -0,0 +1,63 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 启动耗时报告
+ * 输出 JVM 启动至应用就绪(startup time)以及至 UserRepository 第一次调用返回(time to first query)的毫秒数：
+ * 延迟初始化的仓库在第一次调用时才完成初始化，只看前者会低估实际可用的时间；第一次调用也可能来自定时任务(如 UserCountEstimator)
+ */
+@Aspect
+public class StartupTimingReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingReporter.class);
+
+    private final AtomicLong startupMillis = new AtomicLong(-1);
+
+    private final AtomicLong firstQueryMillis = new AtomicLong(-1);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (this.startupMillis.compareAndSet(-1, uptime)) {
+            logger.info("Application ready {} ms after JVM start", uptime);
+        }
+    }
+
+    @Around("this(club.codedemo.springdatajpaquery.repository.UserRepository)")
+    public Object firstQuery(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (this.firstQueryMillis.get() >= 0) {
+            return joinPoint.proceed();
+        }
+        Object result = joinPoint.proceed();
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (this.firstQueryMillis.compareAndSet(-1, uptime)) {
+            logger.info("First UserRepository query ({}) returned {} ms after JVM start",
+                    joinPoint.getSignature().getName(), uptime);
+        }
+        return result;
+    }
+
+    /**
+     * JVM 启动至应用就绪的毫秒数，尚未就绪时为 -1
+     */
+    public long getStartupMillis() {
+        return this.startupMillis.get();
+    }
+
+    /**
+     * JVM 启动至 UserRepository 第一次调用返回的毫秒数，尚未调用时为 -1
+     */
+    public long getFirstQueryMillis() {
+        return this.firstQueryMillis.get();
+    }
+}
@@ -1,7 +1,20 @@
 drop table if exists user CASCADE;
-create table user (id bigint not null AUTO_INCREMENT, name varchar(255), status int(11), email varchar(255), primary key (id));
-insert into user values (1, 'zhangsan', 1, '123@123.com');
-insert into user values (2, 'lisi', 0, '456@456.com');
-insert into user values (3, 'wangwu', 1, '789@789.com');
-insert into user values (4, 'zhaoliu', 0, '1234@1234.com');
-insert into user values (5, 'sunqi', 0, '5678@5678.com');
\ No newline at end of file
+drop table if exists user_change CASCADE;
+drop table if exists user_scan_checkpoint CASCADE;
+drop sequence if exists user_seq;
+create sequence user_seq start with 101 increment by 50;
+-- name_length 为计算列，由数据库根据 name 维护，供按姓名长度排序时使用索引；MySQL 中写作 name_length int generated always as (char_length(name)) stored
+create table user (id bigint default next value for user_seq not null, name varchar(255), status int(11), email varchar(255), name_length int as length(name), primary key (id));
+create index idx_user_status_name on user (status, name);
+create index idx_user_name on user (name);
+create index idx_user_email on user (email);
+create index idx_user_name_length on user (name_length);
+-- 用户变更记录，seq 自增，下游按 seq 拉取增量
+create table user_change (seq bigint auto_increment not null, user_id bigint not null, operation varchar(6) not null, status int(11), changed_at timestamp not null, primary key (seq));
+-- 分区扫描(UserPartitionedScanner)的检查点：各任务的分区范围及已处理到的 id
+create table user_scan_checkpoint (job varchar(64) not null, partition_index int not null, from_id bigint not null, to_id bigint not null, last_id bigint not null, completed boolean not null, primary key (job, partition_index));
+insert into user (id, name, status, email) values (1, 'zhangsan', 1, '123@123.com');
+insert into user (id, name, status, email) values (2, 'lisi', 0, '456@456.com');
+insert into user (id, name, status, email) values (3, 'wangwu', 1, '789@789.com');
+insert into user (id, name, status, email) values (4, 'zhaoliu', 0, '1234@1234.com');
+insert into user (id, name, status, email) values (5, 'sunqi', 0, '5678@5678.com');
\ No newline at end of file
@@ -0,0 +1,61 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class LongIntHashMapTest {
+
+    /**
+     * 随机增删后与 HashMap 的结果一致，删除后探测链仍然完整
+     */
+    @Test
+    void randomOperations() {
+        Random random = new Random(0);
+        LongIntHashMap map = new LongIntHashMap(0);
+        LongHashSet set = new LongHashSet(0);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(10_000) * 50L;
+            if (random.nextInt(3) < 2) {
+                int value = random.nextInt(5);
+                Integer previous = expected.put(key, value);
+                Assertions.assertEquals(map.put(key, value, -1), previous == null ? -1 : previous);
+                Assertions.assertEquals(set.add(key), previous == null);
+            } else {
+                Integer previous = expected.remove(key);
+                Assertions.assertEquals(map.remove(key, -1), previous == null ? -1 : previous);
+                Assertions.assertEquals(set.remove(key), previous != null);
+            }
+        }
+        for (long key = 1; key < 10_000 * 50L; key += 50) {
+            Integer value = expected.get(key);
+            Assertions.assertEquals(map.get(key, -1), value == null ? -1 : value);
+            Assertions.assertEquals(set.contains(key), value != null);
+        }
+        Assertions.assertEquals(map.size(), expected.size());
+        Assertions.assertEquals(set.size(), expected.size());
+        long[] keys = set.toArray();
+        Arrays.sort(keys);
+        Assertions.assertArrayEquals(keys, expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    /**
+     * 每百万个键：哈希表 2^21 个槽位，共 24MB(12 字节/槽位)；集合 8 字节/槽位
+     */
+    @Test
+    void memoryPerMillion() {
+        LongIntHashMap map = new LongIntHashMap(1_000_000);
+        LongHashSet set = new LongHashSet(0);
+        for (long id = 1; id <= 1_000_000; id++) {
+            map.put(id * 50, 1, -1);
+            set.add(id * 50);
+        }
+        Assertions.assertEquals(map.memoryBytes(), (1L << 21) * 12);
+        Assertions.assertEquals(set.memoryBytes(), (1L << 21) * 8);
+    }
+}
@@ -0,0 +1,133 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Comparator;
+import java.util.List;
+
+@SpringBootTest
+class UserQueryCacheTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    UserQueryCache cache;
+
+    @BeforeEach
+    void clearCache() {
+        this.cache = (UserQueryCache) cacheManager.getCache(UserQueryCache.NAME);
+        this.cache.getNativeCache().invalidateAll();
+    }
+
+    /**
+     * 查询结果被缓存，直到数据表被修改
+     */
+    @Test
+    void cachedUntilModified() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CacheStats before = cache.getNativeCache().stats();
+
+        List<User> users = userRepository.findUserByStatusUsingJPQL(1);
+        Assertions.assertEquals(users.size(), 2);
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 2);
+        // 参数不同，分别缓存
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(0).size(), 3);
+
+        CacheStats stats = cache.getNativeCache().stats().minus(before);
+        Assertions.assertEquals(stats.hitCount(), 1);
+        Assertions.assertEquals(stats.missCount(), 2);
+        Assertions.assertNotNull(meterRegistry.find("cache.gets").tag("cache", UserQueryCache.NAME).functionCounter());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan"));
+            Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 1);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingJPQL(1, "zhangsan"));
+        }
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 2);
+    }
+
+    /**
+     * 每次命中返回新的副本，调用方修改结果不影响缓存
+     */
+    @Test
+    void hitReturnsCopy() {
+        List<User> users = userRepository.findUserByStatusUsingJPQL(1);
+        users.get(0).setStatus(0);
+        users.remove(1);
+
+        List<User> cached = userRepository.findUserByStatusUsingJPQL(1);
+        Assertions.assertNotSame(cached, users);
+        Assertions.assertEquals(cached.size(), 2);
+        Assertions.assertEquals(cached.get(0).getStatus(), 1);
+        cached.sort(Comparator.comparing(User::getId).reversed());
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).get(0).getId(), 1L);
+        Assertions.assertTrue(cache.getNativeCache().stats().hitCount() >= 2);
+    }
+
+    /**
+     * 读写事务中不使用缓存，查询结果受持久化上下文管理，修改在提交时写入数据库
+     */
+    @Test
+    void bypassedInReadWriteTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        userRepository.findUserByStatusUsingJPQL(1);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<User> users = userRepository.findUserByStatusUsingJPQL(1);
+                Assertions.assertTrue(entityManager.contains(users.get(0)));
+                users.get(0).setStatus(0);
+            });
+            Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 1);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingJPQL(1, "zhangsan"));
+        }
+    }
+
+    /**
+     * 事务中执行 @Modifying 方法后，本事务中的查询不会读到缓存中的旧数据
+     */
+    @Test
+    @Transactional
+    void noStaleReadAfterModifying() {
+        Assertions.assertEquals(userRepository.findAllActiveUsersUsingJPQL().size(), 2);
+        Assertions.assertEquals(userRepository.findUserByNameListUsingJPQL(Lists.newArrayList("zhangsan", "liuba")).size(), 1);
+
+        userRepository.updateUserSetStatusForNameUsingNative(0, "zhangsan");
+        Assertions.assertEquals(userRepository.findAllActiveUsersUsingJPQL().size(), 1);
+
+        userRepository.insertUserUsingNative("liuba", 1, "123456@123456.com");
+        Assertions.assertEquals(userRepository.findAllActiveUsersUsingJPQL().size(), 2);
+        Assertions.assertEquals(userRepository.findUserByNameListUsingJPQL(Lists.newArrayList("zhangsan", "liuba")).size(), 2);
+
+        // 修改过数据表的事务不会向缓存中写入未提交的数据
+        Assertions.assertEquals(cache.getNativeCache().estimatedSize(), 0);
+    }
+}
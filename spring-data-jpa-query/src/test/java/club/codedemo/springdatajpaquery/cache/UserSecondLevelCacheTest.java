@@ -0,0 +1,106 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+
+@SpringBootTest
+class UserSecondLevelCacheTest {
+
+    private static final String REGION = User.CACHE_REGION;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SecondLevelCacheEndpoint secondLevelCacheEndpoint;
+
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void evictAll() {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private CacheRegionStatistics regionStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getDomainDataRegionStatistics(REGION);
+    }
+
+    /**
+     * 第二次 findById 从二级缓存中读取
+     */
+    @Test
+    void findByIdHitsSecondLevelCache() {
+        long hits = this.regionStatistics().getHitCount();
+
+        Assertions.assertEquals(userRepository.findById(1L).get().getName(), "zhangsan");
+        Assertions.assertTrue(entityManagerFactory.getCache().contains(User.class, 1L));
+        Assertions.assertEquals(userRepository.findById(1L).get().getName(), "zhangsan");
+
+        Assertions.assertEquals(this.regionStatistics().getHitCount(), hits + 1);
+        Assertions.assertTrue(secondLevelCacheEndpoint.regions().get(REGION).getHitRatio() > 0);
+    }
+
+    /**
+     * JPQL 批量更新使缓存区域失效
+     */
+    @Test
+    void updateUsingJPQLEvictsRegion() {
+        userRepository.findById(1L);
+        Assertions.assertTrue(entityManagerFactory.getCache().contains(User.class, 1L));
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan"));
+            Assertions.assertFalse(entityManagerFactory.getCache().contains(User.class, 1L));
+            Assertions.assertEquals(userRepository.findById(1L).get().getStatus(), 0);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingJPQL(1, "zhangsan"));
+        }
+    }
+
+    /**
+     * Native 更新使缓存区域失效
+     */
+    @Test
+    void updateUsingNativeEvictsRegion() {
+        userRepository.findById(1L);
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingNative(0, "zhangsan"));
+            Assertions.assertEquals(userRepository.findById(1L).get().getStatus(), 0);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> userRepository.updateUserSetStatusForNameUsingNative(1, "zhangsan"));
+        }
+    }
+
+    /**
+     * 绕过 Hibernate 的 JDBC 批量更新同样使缓存区域失效
+     */
+    @Test
+    void batchUpdateEvictsRegion() {
+        userRepository.findById(1L);
+        try {
+            userRepository.batchUpdateUserSetStatusForName(Collections.singletonMap("zhangsan", 0), 10);
+            Assertions.assertFalse(entityManagerFactory.getCache().contains(User.class, 1L));
+            Assertions.assertEquals(userRepository.findById(1L).get().getStatus(), 0);
+        } finally {
+            userRepository.batchUpdateUserSetStatusForName(Collections.singletonMap("zhangsan", 1), 10);
+        }
+    }
+}
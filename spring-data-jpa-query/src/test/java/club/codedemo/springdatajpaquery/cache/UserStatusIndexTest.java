@@ -0,0 +1,151 @@
+package club.codedemo.springdatajpaquery.cache;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 定时刷新及全量加载的间隔设得很长，由测试显式调用 refresh、reload
+ */
+@SpringBootTest(properties = {"codedemo.user-status-index.enabled=true",
+        "codedemo.user-status-index.refresh-interval-millis=3600000",
+        "codedemo.user-status-index.reload-interval-millis=3600000"})
+class UserStatusIndexTest {
+
+    @Autowired
+    UserStatusIndex userStatusIndex;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lookup() {
+        Assertions.assertTrue(userStatusIndex.isActive(1L));
+        Assertions.assertFalse(userStatusIndex.isActive(2L));
+        Assertions.assertEquals(userStatusIndex.getStatus(2L), 0);
+        Assertions.assertEquals(userStatusIndex.getStatus(999_999L), UserStatusIndex.ABSENT);
+
+        long[] active = userStatusIndex.findIdsByStatus(1);
+        Arrays.sort(active);
+        Assertions.assertArrayEquals(active, new long[]{1L, 3L});
+        Assertions.assertEquals(userStatusIndex.countByStatus(0), 3);
+        Assertions.assertEquals(userStatusIndex.findIdsByStatus(9).length, 0);
+        Assertions.assertTrue(userStatusIndex.memoryBytes() > 0);
+    }
+
+    /**
+     * 经由 UserRepository 的写入在刷新后可见
+     */
+    @Test
+    void refresh() {
+        userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan");
+        try {
+            userStatusIndex.refresh();
+            Assertions.assertFalse(userStatusIndex.isActive(1L));
+            Assertions.assertEquals(userStatusIndex.countByStatus(1), 1);
+        } finally {
+            userRepository.updateUserSetStatusForNameUsingJPQL(1, "zhangsan");
+        }
+        userStatusIndex.refresh();
+        Assertions.assertTrue(userStatusIndex.isActive(1L));
+
+        User user = new User();
+        user.setName("index");
+        user.setStatus(3);
+        user.setEmail("index@index.com");
+        user = userRepository.save(user);
+        userStatusIndex.refresh();
+        Assertions.assertEquals(userStatusIndex.getStatus(user.getId()), 3);
+        Assertions.assertEquals(userStatusIndex.countByStatus(3), 1);
+
+        userRepository.delete(user);
+        userStatusIndex.refresh();
+        Assertions.assertEquals(userStatusIndex.getStatus(user.getId()), UserStatusIndex.ABSENT);
+        Assertions.assertEquals(userStatusIndex.countByStatus(3), 0);
+
+        // 重放已应用过的变更，结果不变
+        userStatusIndex.reload();
+        Assertions.assertTrue(userStatusIndex.isActive(1L));
+        Assertions.assertEquals(userStatusIndex.getStatus(user.getId()), UserStatusIndex.ABSENT);
+    }
+
+    /**
+     * 事务在更大的 seq 被应用之后才提交，其变更作为空缺在提交后的刷新中补上
+     */
+    @Test
+    void lateCommit() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        AtomicReference<Long> id = new AtomicReference<>();
+        Thread thread = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = new User();
+            user.setName("late");
+            user.setStatus(7);
+            user.setEmail("late@late.com");
+            id.set(userRepository.saveAndFlush(user).getId());
+            inserted.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        thread.start();
+        try {
+            Assertions.assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            // 超过 UserStatusIndex 可能的任何回退窗口
+            for (int i = 0; i < 150; i++) {
+                userRepository.updateUserSetStatusForNameUsingJPQL(0, "lisi");
+            }
+            userStatusIndex.refresh();
+            Assertions.assertEquals(userStatusIndex.getStatus(id.get()), UserStatusIndex.ABSENT);
+            Assertions.assertTrue(userStatusIndex.getPendingGapCount() > 0);
+        } finally {
+            commit.countDown();
+            thread.join();
+        }
+        try {
+            userStatusIndex.refresh();
+            Assertions.assertEquals(userStatusIndex.getStatus(id.get()), 7);
+            Assertions.assertEquals(userStatusIndex.getPendingGapCount(), 0);
+        } finally {
+            userRepository.deleteById(id.get());
+        }
+        userStatusIndex.refresh();
+        Assertions.assertEquals(userStatusIndex.getStatus(id.get()), UserStatusIndex.ABSENT);
+    }
+
+    /**
+     * 绕过变更记录直接写表，在全量加载后生效
+     */
+    @Test
+    void scheduledReload() {
+        jdbcTemplate.update("UPDATE user SET status = 5 WHERE id = 5");
+        try {
+            userStatusIndex.refresh();
+            Assertions.assertEquals(userStatusIndex.getStatus(5L), 0);
+            userStatusIndex.scheduledReload();
+            Assertions.assertEquals(userStatusIndex.getStatus(5L), 5);
+        } finally {
+            jdbcTemplate.update("UPDATE user SET status = 0 WHERE id = 5");
+            userStatusIndex.reload();
+        }
+    }
+}
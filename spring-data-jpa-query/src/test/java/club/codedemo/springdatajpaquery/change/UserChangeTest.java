@@ -0,0 +1,210 @@
+package club.codedemo.springdatajpaquery.change;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.entity.UserChange;
+import club.codedemo.springdatajpaquery.repository.UserChangeRepository;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每个用例在事务中执行并最终回滚，不影响其它测试的数据
+ */
+@SpringBootTest
+class UserChangeTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserChangeRepository userChangeRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void save() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            User user = new User();
+            user.setName("change");
+            user.setStatus(1);
+            user.setEmail("change@change.com");
+            user = userRepository.saveAndFlush(user);
+
+            user.setStatus(0);
+            userRepository.saveAndFlush(user);
+
+            userRepository.delete(user);
+            userRepository.flush();
+
+            List<UserChange> changes = userChangeRepository.findChangesSince(since, 10);
+            Assertions.assertEquals(changes.size(), 3);
+            assertChange(changes.get(0), user.getId(), UserChange.Operation.INSERT, 1);
+            assertChange(changes.get(1), user.getId(), UserChange.Operation.UPDATE, 0);
+            assertChange(changes.get(2), user.getId(), UserChange.Operation.DELETE, 0);
+        });
+    }
+
+    @Test
+    void modifying() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan");
+            userRepository.insertUserUsingNative("native", 1, "native@native.com");
+
+            List<UserChange> changes = new ArrayList<>(userChangeRepository.findChangesSince(since, 10));
+            changes.sort(Comparator.comparing(UserChange::getUserId));
+            Assertions.assertEquals(changes.size(), 2);
+            assertChange(changes.get(0), 1L, UserChange.Operation.UPDATE, 0);
+            Long id = userRepository.findUserByNameListUsingJPQL(Collections.singletonList("native")).get(0).getId();
+            assertChange(changes.get(1), id, UserChange.Operation.INSERT, 1);
+        });
+    }
+
+    /**
+     * 同名同邮箱的用户各自记录自己的 id
+     */
+    @Test
+    void nativeInsertWithSameNameAndEmail() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            userRepository.insertUserUsingNative("native", 1, "native@native.com");
+            userRepository.insertUserUsingNative("native", 0, "native@native.com");
+
+            List<UserChange> changes = userChangeRepository.findChangesSince(since, 10);
+            Assertions.assertEquals(2, changes.size());
+            List<User> users = new ArrayList<>(userRepository.findUserByNameListUsingJPQL(Collections.singletonList("native")));
+            users.sort(Comparator.comparing(User::getId));
+            assertChange(changes.get(0), users.get(0).getId(), UserChange.Operation.INSERT, 1);
+            assertChange(changes.get(1), users.get(1).getId(), UserChange.Operation.INSERT, 0);
+        });
+    }
+
+    @Test
+    void deleteInBatch() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            userRepository.deleteInBatch(userRepository.findAllById(Arrays.asList(1L, 2L)));
+
+            List<UserChange> changes = new ArrayList<>(userChangeRepository.findChangesSince(since, 10));
+            changes.sort(Comparator.comparing(UserChange::getUserId));
+            Assertions.assertEquals(2, changes.size());
+            Assertions.assertEquals(1L, changes.get(0).getUserId());
+            Assertions.assertEquals(2L, changes.get(1).getUserId());
+            changes.forEach(change -> Assertions.assertEquals(UserChange.Operation.DELETE, change.getOperation()));
+        });
+    }
+
+    @Test
+    void deleteAllInBatch() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            long count = userRepository.count();
+            userRepository.deleteAllInBatch();
+
+            List<UserChange> changes = userChangeRepository.findChangesSince(since, 100);
+            Assertions.assertEquals(count, changes.size());
+            changes.forEach(change -> Assertions.assertEquals(UserChange.Operation.DELETE, change.getOperation()));
+            Assertions.assertEquals(0, userRepository.count());
+        });
+    }
+
+    @Test
+    void batch() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            userRepository.batchUpdateUserSetStatusForName(Collections.singletonMap("lisi", 1), 10);
+
+            List<UserChange> changes = userChangeRepository.findChangesSince(since, 10);
+            Assertions.assertEquals(changes.size(), 1);
+            assertChange(changes.get(0), 2L, UserChange.Operation.UPDATE, 1);
+        });
+    }
+
+    /**
+     * 姓名数超过单个 IN 列表的上限，变更记录按块写入，补齐用的重复姓名不会产生重复记录
+     */
+    @Test
+    void batchWithManyNames() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            Map<String, Integer> statusByName = new LinkedHashMap<>();
+            statusByName.put("lisi", 1);
+            for (int i = 0; i < 2000; i++) {
+                statusByName.put("nobody" + i, 1);
+            }
+            statusByName.put("wangwu", 0);
+            userRepository.batchUpdateUserSetStatusForName(statusByName, 5000);
+
+            List<UserChange> changes = new ArrayList<>(userChangeRepository.findChangesSince(since, 10));
+            changes.sort(Comparator.comparing(UserChange::getUserId));
+            Assertions.assertEquals(changes.size(), 2);
+            assertChange(changes.get(0), 2L, UserChange.Operation.UPDATE, 1);
+            assertChange(changes.get(1), 3L, UserChange.Operation.UPDATE, 0);
+        });
+    }
+
+    /**
+     * 写操作回滚时，变更记录一并回滚
+     */
+    @Test
+    void rollback() {
+        long since = userChangeRepository.findLatestSeq();
+        this.inRollbackTransaction(() -> userRepository.updateUserSetStatusForNameUsingNative(0, "wangwu"));
+        Assertions.assertEquals(userChangeRepository.findLatestSeq(), since);
+    }
+
+    /**
+     * 按批拉取，直至追上
+     */
+    @Test
+    void findChangesSince() {
+        this.inRollbackTransaction(() -> {
+            long since = userChangeRepository.findLatestSeq();
+            for (int i = 0; i < 5; i++) {
+                userRepository.updateUserSetStatusForNameUsingJPQL(i % 2, "zhaoliu");
+            }
+
+            int count = 0;
+            int batches = 0;
+            List<UserChange> changes;
+            while (!(changes = userChangeRepository.findChangesSince(since, 2)).isEmpty()) {
+                Assertions.assertTrue(changes.get(0).getSeq() > since);
+                since = changes.get(changes.size() - 1).getSeq();
+                count += changes.size();
+                batches++;
+            }
+            Assertions.assertEquals(count, 5);
+            Assertions.assertEquals(batches, 3);
+            Assertions.assertEquals(since, userChangeRepository.findLatestSeq());
+        });
+    }
+
+    private static void assertChange(UserChange change, Long userId, UserChange.Operation operation, Integer status) {
+        Assertions.assertEquals(change.getUserId(), userId);
+        Assertions.assertEquals(change.getOperation(), operation);
+        Assertions.assertEquals(change.getStatus(), status);
+        Assertions.assertNotNull(change.getChangedAt());
+    }
+
+    private void inRollbackTransaction(Runnable runnable) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            runnable.run();
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+}
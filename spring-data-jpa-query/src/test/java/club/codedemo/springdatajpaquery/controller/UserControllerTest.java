@@ -0,0 +1,118 @@
+package club.codedemo.springdatajpaquery.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void findUserByStatus() throws Exception {
+        mockMvc.perform(get("/users/status/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    /**
+     * 异步接口先释放 Servlet 线程，查询完成后再写回相同的结果
+     */
+    @Test
+    void findUserByStatusAsync() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/async/status/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("zhangsan"));
+    }
+
+    @Test
+    void findUserByStatusReactive() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/reactive/status/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("zhangsan"));
+    }
+
+    @Test
+    void exportCsv() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(csv.startsWith("id,name,status,email\n1,zhangsan,1,123@123.com\n2,lisi,0,456@456.com\n"));
+    }
+
+    @Test
+    void exportJson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export").param("format", "json"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("zhangsan"))
+                .andExpect(jsonPath("$[0].email").value("123@123.com"));
+    }
+
+    @Test
+    void exportFormatIgnoresCase() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export").param("format", "JSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void exportUnknownFormat() throws Exception {
+        mockMvc.perform(get("/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 请求头 Accept-Encoding 包含 gzip 时压缩响应
+     */
+    @Test
+    void exportGzip() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv = new String(StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(body))),
+                StandardCharsets.UTF_8);
+        Assertions.assertTrue(csv.startsWith("id,name,status,email\n1,zhangsan,1,123@123.com\n"));
+    }
+}
@@ -0,0 +1,42 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import club.codedemo.springdatajpaquery.service.UserRepositoryAsync;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+/**
+ * high-throughput profile 中的配置生效，并出现在启动报告中
+ */
+@SpringBootTest
+@ActiveProfiles("high-throughput")
+class DataSourceSettingsReportTest {
+
+    @Autowired
+    DataSourceSettingsReport dataSourceSettingsReport;
+
+    @Autowired
+    UserRepositoryAsync userRepositoryAsync;
+
+    @Test
+    void highThroughputSettings() {
+        Map<String, Object> settings = dataSourceSettingsReport.settings();
+        Assertions.assertEquals(String.valueOf(settings.get("hibernate.query.in_clause_parameter_padding")), "true");
+        Assertions.assertEquals(String.valueOf(settings.get("hibernate.jdbc.batch_size")), "50");
+        Assertions.assertEquals(String.valueOf(settings.get("hibernate.order_updates")), "true");
+        Assertions.assertEquals(String.valueOf(settings.get("hibernate.query.plan_cache_max_size")), "4096");
+        Assertions.assertTrue(settings.entrySet().stream().anyMatch(setting ->
+                setting.getKey().endsWith(".maximumPoolSize") && Integer.valueOf(20).equals(setting.getValue())));
+
+        // H2 不会被设置 MySQL 驱动的属性
+        Assertions.assertTrue(settings.entrySet().stream().noneMatch(setting ->
+                setting.getKey().endsWith(".dataSourceProperties") && ((Map<?, ?>) setting.getValue()).containsKey("cachePrepStmts")));
+
+        // 异步门面的并发数随连接池调整
+        Assertions.assertEquals(userRepositoryAsync.getPoolSize(), 20);
+    }
+}
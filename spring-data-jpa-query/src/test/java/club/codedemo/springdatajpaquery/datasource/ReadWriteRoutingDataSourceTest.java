@@ -0,0 +1,134 @@
+package club.codedemo.springdatajpaquery.datasource;
+
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 以两个内存 H2 数据库模拟只读副本：replica0 比主库多1个用户，replica1 比主库多2个用户，
+ * 因此可以根据 count() 的结果判断查询访问了哪个数据库；replica2 无法连接
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "codedemo.datasource.routing.enabled=true",
+        "codedemo.datasource.routing.replicas[0].url=" + ReadWriteRoutingDataSourceTest.REPLICA0,
+        "codedemo.datasource.routing.replicas[1].url=" + ReadWriteRoutingDataSourceTest.REPLICA1,
+        "codedemo.datasource.routing.replicas[2].url=jdbc:h2:tcp://localhost:1/mem:unreachable",
+        "codedemo.datasource.routing.replicas[2].connection-timeout=250ms",
+        "codedemo.datasource.routing.sticky-after-write=1h"
+})
+class ReadWriteRoutingDataSourceTest {
+
+    static final String REPLICA0 = "jdbc:h2:mem:routing-replica0;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA1 = "jdbc:h2:mem:routing-replica1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    @Autowired
+    HealthIndicator replicasHealthIndicator;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    static void createReplicas() throws Exception {
+        createReplica(REPLICA0, 1);
+        createReplica(REPLICA1, 2);
+    }
+
+    private static void createReplica(String url, int extraUsers) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("data.sql"));
+            try (Statement statement = connection.createStatement()) {
+                for (int i = 0; i < extraUsers; i++) {
+                    statement.executeUpdate("insert into user (name, status, email) values ('replica', 1, 'replica@codedemo.club')");
+                }
+            }
+        }
+    }
+
+    /**
+     * 读写事务之后的粘滞状态属于线程，在单独的线程中执行以免影响其它测试
+     */
+    private static <T> T inNewThread(Callable<T> callable) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(callable).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 只读的查询轮流访问健康的副本，不可用的副本被排除
+     */
+    @Test
+    void readsGoToHealthyReplicas() {
+        Assertions.assertEquals(readWriteRoutingDataSource.getHealthyReplicas(), Arrays.asList("replica0", "replica1"));
+        Assertions.assertTrue(readWriteRoutingDataSource.getReplicaErrors().containsKey("replica2"));
+
+        Set<Long> counts = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            counts.add(userRepository.count());
+        }
+        Assertions.assertEquals(counts, new HashSet<>(Arrays.asList(6L, 7L)));
+
+        Health health = replicasHealthIndicator.health();
+        Assertions.assertEquals(health.getDetails().get("readsRoutedTo"), "replicas");
+        Assertions.assertTrue(((Map<?, ?>) health.getDetails().get("unhealthy")).containsKey("replica2"));
+    }
+
+    /**
+     * 读写事务及 @Modifying 方法访问主库，之后同一线程的只读查询也访问主库
+     */
+    @Test
+    void writesGoToPrimaryAndStick() throws Exception {
+        long primaryBefore = jdbcTemplate.queryForObject("select count(*) from user", Long.class);
+
+        long[] counts = inNewThread(() -> {
+            long beforeWrite = userRepository.count();
+            long inWriteTransaction = new TransactionTemplate(transactionManager).execute(status -> userRepository.count());
+            userRepository.insertUserUsingNative("routing", 1, "routing@codedemo.club");
+            long afterWrite = userRepository.count();
+            return new long[]{beforeWrite, inWriteTransaction, afterWrite};
+        });
+
+        Assertions.assertTrue(counts[0] == 6 || counts[0] == 7);
+        Assertions.assertEquals(counts[1], primaryBefore);
+        Assertions.assertEquals(counts[2], primaryBefore + 1);
+        Assertions.assertEquals(jdbcTemplate.queryForObject("select count(*) from user", Long.class), primaryBefore + 1);
+
+        // 副本未被写入，其它线程仍然访问副本
+        long count = userRepository.count();
+        Assertions.assertTrue(count == 6 || count == 7);
+    }
+}
@@ -0,0 +1,57 @@
+package club.codedemo.springdatajpaquery.metrics;
+
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+
+@SpringBootTest(properties = "codedemo.query-metrics.statement-threshold=0")
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    RepositoryMetricsEndpoint repositoryMetricsEndpoint;
+
+    private double summaryTotal(String name, String method) {
+        return meterRegistry.get(name).tag("method", method).summary().totalAmount();
+    }
+
+    @Test
+    void recordsRepositoryCalls() {
+        String method = "findUserByStatusAndNameUsingJPQL";
+        userRepository.findUserByStatusAndNameUsingJPQL(1, "zhangsan");
+        userRepository.findUserByStatusAndNameUsingJPQL(0, "zhangsan");
+
+        Timer timer = meterRegistry.get(RepositoryMetricsAspect.INVOCATIONS)
+                .tag("method", method).tag("outcome", "success").timer();
+        Assertions.assertEquals(timer.count(), 2);
+        Assertions.assertEquals(this.summaryTotal(RepositoryMetricsAspect.ROWS, method), 1);
+        Assertions.assertEquals(this.summaryTotal(RepositoryMetricsAspect.STATEMENTS, method), 2);
+        Assertions.assertTrue(this.summaryTotal(RepositoryMetricsAspect.ENTITIES, method) >= 1);
+
+        Map<String, Object> metrics = repositoryMetricsEndpoint.methods().get(method);
+        Assertions.assertNotNull(metrics.get("success"));
+        Assertions.assertEquals(metrics.get("statements"), 1.0);
+    }
+
+    /**
+     * 语句数阈值为0时，每次访问数据库的调用都记为 N+1 查询
+     */
+    @Test
+    void detectsOffenders() {
+        String method = "findUserByStatusAndNameNamedParamsUsingJPQL";
+        userRepository.findUserByStatusAndNameNamedParamsUsingJPQL(1, "zhangsan");
+        Assertions.assertEquals(meterRegistry.get(RepositoryMetricsAspect.OFFENDERS)
+                .tag("method", method).tag("reason", "statements").counter().count(), 1);
+    }
+}
@@ -0,0 +1,56 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+class CompiledQueryCacheTest {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * 同一形态只构建一次 Criteria，渲染出的 JPQL 可以直接按命名参数执行
+     */
+    @Test
+    void compilesEachShapeOnce() {
+        CompiledQueryCache cache = new CompiledQueryCache();
+        AtomicInteger builds = new AtomicInteger();
+
+        String jpql = null;
+        for (int i = 0; i < 3; i++) {
+            jpql = cache.get("status", entityManager, cb -> {
+                builds.incrementAndGet();
+                CriteriaQuery<User> query = cb.createQuery(User.class);
+                Root<User> user = query.from(User.class);
+                return query.select(user)
+                        .where(cb.equal(user.get("status"), cb.parameter(Integer.class, "status")))
+                        .orderBy(cb.asc(user.get("id")));
+            });
+        }
+        Assertions.assertEquals(builds.get(), 1);
+        Assertions.assertEquals(cache.size(), 1);
+
+        List<User> users = entityManager.createQuery(jpql, User.class)
+                .setParameter("status", 1)
+                .getResultList();
+        Assertions.assertEquals(users.size(), 2);
+        Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+    }
+
+    @Test
+    void padded() {
+        Assertions.assertEquals(QueryParameterChunks.padded(Arrays.asList("a", "b", "c")).size(), 4);
+        Assertions.assertEquals(QueryParameterChunks.padded(Arrays.asList("a", "b", "c")).get(3), "c");
+    }
+}
@@ -0,0 +1,118 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.ReactiveUser;
+import club.codedemo.springdatajpaquery.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@SpringBootTest
+class ReactiveUserRepositoryTest {
+
+    @Autowired
+    ReactiveUserRepository reactiveUserRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    /**
+     * 只读：不暴露 save、delete 等写方法
+     */
+    @Test
+    void readOnly() {
+        Assertions.assertFalse(ReactiveCrudRepository.class.isAssignableFrom(ReactiveUserRepository.class));
+    }
+
+    @Test
+    void findAllActiveUsers() {
+        StepVerifier.create(reactiveUserRepository.findAllActiveUsers())
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void findUserByStatus() {
+        StepVerifier.create(reactiveUserRepository.findUserByStatus(0))
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void findUserByStatusAndName() {
+        StepVerifier.create(reactiveUserRepository.findUserByStatusAndName(1, "zhangsan"))
+                .assertNext(user -> {
+                    Assertions.assertEquals(user.getId(), 1L);
+                    Assertions.assertEquals(user.getEmail(), "123@123.com");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findAllUsersAfterId() {
+        StepVerifier.create(reactiveUserRepository.findAllUsersAfterId(1L, 2).map(ReactiveUser::getId))
+                .expectNext(2L, 3L)
+                .verifyComplete();
+        StepVerifier.create(reactiveUserRepository.findAllUsersAfterId(4L, 2).map(ReactiveUser::getId))
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
+    /**
+     * 姓名超过一块时分块查询，重复的姓名只查询一次
+     */
+    @Test
+    void findUserByNameList() {
+        List<String> names = IntStream.range(0, QueryParameterChunks.MAX_IN_CLAUSE_SIZE)
+                .mapToObj(i -> "name" + i)
+                .collect(Collectors.toCollection(ArrayList::new));
+        names.addAll(Arrays.asList("zhangsan", "lisi", "zhangsan"));
+        StepVerifier.create(reactiveUserRepository.findUserByNameList(names).map(ReactiveUser::getName).sort())
+                .expectNext("lisi", "zhangsan")
+                .verifyComplete();
+        StepVerifier.create(reactiveUserRepository.findUserByNameList(Collections.emptyList()))
+                .verifyComplete();
+    }
+
+    /**
+     * 下游每次只请求1条时，逐条发出结果
+     */
+    @Test
+    void backpressure() {
+        StepVerifier.create(reactiveUserRepository.findAllUsersAfterId(0L, 5), 1)
+                .expectNextCount(1)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    /**
+     * 与 UserRepository 访问同一个数据库
+     */
+    @Test
+    void sameDatabase() {
+        User user = new User();
+        user.setName("reactive");
+        user.setStatus(2);
+        user.setEmail("reactive@reactive.com");
+        user = userRepository.save(user);
+        try {
+            StepVerifier.create(reactiveUserRepository.findUserByStatusAndName(2, "reactive").map(ReactiveUser::getId))
+                    .expectNext(user.getId())
+                    .verifyComplete();
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+}
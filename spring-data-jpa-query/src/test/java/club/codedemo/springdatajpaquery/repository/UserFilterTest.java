@@ -0,0 +1,106 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@SpringBootTest
+class UserFilterTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * 等价的过滤条件相等，与设置条件的顺序及姓名集合的顺序无关
+     */
+    @Test
+    void canonical() {
+        UserFilter filter = UserFilter.builder().status(1).nameIn(Arrays.asList("wangwu", "zhangsan")).build();
+        UserFilter same = UserFilter.builder().nameIn(Arrays.asList("zhangsan", "wangwu", "zhangsan")).status(1).build();
+        Assertions.assertEquals(filter, same);
+        Assertions.assertEquals(filter.hashCode(), same.hashCode());
+        Assertions.assertNotEquals(filter, UserFilter.builder().status(0).build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UserFilter.builder().emailStartsWith(""));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> UserFilter.builder().emailStartsWith("123" + Character.MAX_VALUE));
+    }
+
+    @Test
+    @Transactional
+    void findAll() {
+        List<User> users = userRepository.findAll(UserFilter.builder().status(1).build(), Sort.by("id"));
+        Assertions.assertEquals(users.size(), 2);
+        Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+
+        users = userRepository.findAll(UserFilter.builder().status(0).name("lisi").build());
+        Assertions.assertEquals(users.size(), 1);
+
+        users = userRepository.findAll(UserFilter.builder().nameIn(Arrays.asList("lisi", "wangwu", "liuba")).build(), Sort.by("id"));
+        Assertions.assertEquals(users.size(), 2);
+        Assertions.assertEquals(users.get(0).getName(), "lisi");
+
+        Assertions.assertEquals(userRepository.count(UserFilter.builder().nameIn(Collections.emptyList()).build()), 0);
+        Assertions.assertEquals(userRepository.count(UserFilter.builder().emailStartsWith("123").build()), 2);
+        Assertions.assertEquals(userRepository.count(UserFilter.builder().emailLike("%@5678.com").build()), 1);
+        Assertions.assertEquals(userRepository.count(UserFilter.builder().idBetween(2L, 4L).build()), 3);
+        Assertions.assertEquals(userRepository.count(UserFilter.builder().idBetween(null, 2L).status(1).build()), 1);
+    }
+
+    /**
+     * 条件相同而值不同的过滤条件生成相同的 SQL，第二次查询不再解析新的查询计划
+     */
+    @Test
+    @Transactional
+    void sharesQueryPlan() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        userRepository.findAll(UserFilter.builder().status(1).name("zhangsan").nameIn(Arrays.asList("a", "b", "c")).build());
+        long misses = statistics.getQueryPlanCacheMissCount();
+
+        userRepository.findAll(UserFilter.builder().nameIn(Arrays.asList("d", "lisi", "e", "f")).name("lisi").status(0).build());
+        Assertions.assertEquals(statistics.getQueryPlanCacheMissCount(), misses);
+    }
+
+    /**
+     * 键集分页及 DTO投影
+     */
+    @Test
+    @Transactional
+    void findByFilterWithKeyset() {
+        UserFilter filter = UserFilter.builder().status(0).build();
+        List<String> names = new ArrayList<>();
+        String token = null;
+        do {
+            KeysetSlice<User> users = userRepository.findUsersByFilter(filter, token, 2);
+            users.forEach(user -> names.add(user.getName()));
+            token = users.getContinuationToken();
+        } while (token != null);
+        Assertions.assertEquals(names, Arrays.asList("lisi", "zhaoliu", "sunqi"));
+
+        KeysetSlice<UserSummaryDto> summaries = userRepository.findUserSummariesByFilter(filter, null, 2);
+        Assertions.assertEquals(summaries.getNumberOfElements(), 2);
+        Assertions.assertTrue(summaries.hasNext());
+        Assertions.assertEquals(summaries.getContent().get(1).getName(), "zhaoliu");
+
+        summaries = userRepository.findUserSummariesByFilter(filter, summaries.getContinuationToken(), 2);
+        Assertions.assertEquals(summaries.getNumberOfElements(), 1);
+        Assertions.assertFalse(summaries.hasNext());
+        Assertions.assertNull(summaries.getContinuationToken());
+    }
+}
@@ -0,0 +1,169 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.cache.UserQueryCache;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 使用 H2 的 EXPLAIN 确认 UserRepository 中的查询都使用了索引
+ * 通过 StatementInspector 捕获 Hibernate 为各查询方法实际生成的 SQL 再执行 EXPLAIN，查询语句修改后不再使用索引时测试失败
+ */
+@SpringBootTest
+class UserIndexTest {
+
+    /**
+     * Hibernate 准备执行的 SQL
+     */
+    static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        HibernatePropertiesCustomizer statementCaptureCustomizer() {
+            return properties -> properties.compute(AvailableSettings.STATEMENT_INSPECTOR, (key, existing) -> {
+                StatementInspector delegate = (StatementInspector) existing;
+                return (StatementInspector) sql -> {
+                    STATEMENTS.add(sql);
+                    return delegate == null ? sql : delegate.inspect(sql);
+                };
+            });
+        }
+    }
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void clearCache() {
+        // 命中查询结果缓存时不执行 SQL
+        cacheManager.getCache(UserQueryCache.NAME).clear();
+    }
+
+    /**
+     * 执行 repositoryCall 并返回期间 Hibernate 生成的 SQL；在回滚的事务中执行，写操作不影响其它测试
+     */
+    private List<String> capture(Runnable repositoryCall) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            STATEMENTS.clear();
+            repositoryCall.run();
+            List<String> statements = new ArrayList<>(STATEMENTS);
+            Assertions.assertFalse(statements.isEmpty());
+            return statements;
+        });
+    }
+
+    /**
+     * 执行 repositoryCall，其生成的第一条 SQL 必须使用 index
+     */
+    private void assertUsesIndex(String index, Runnable repositoryCall, Object... args) {
+        this.assertUsesIndex(index, this.capture(repositoryCall).get(0), args);
+    }
+
+    private void assertUsesIndex(String index, String sql, Object... args) {
+        String plan = this.explain(sql, args);
+        // H2 的执行计划形如 /* PUBLIC.IDX_USER_NAME: NAME = ?1 */
+        Assertions.assertTrue(plan.toUpperCase().contains("." + index.toUpperCase() + ":"), sql + "\n" + plan);
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    /**
+     * findAllActiveUsers*、findUserByStatus*：使用 (status, name) 索引的前缀
+     */
+    @Test
+    void status() {
+        this.assertUsesIndex("idx_user_status_name", () -> userRepository.findAllActiveUsersUsingJPQL());
+        this.assertUsesIndex("idx_user_status_name", () -> userRepository.findUserByStatusUsingJPQL(1), 1);
+    }
+
+    /**
+     * findUserByStatusAndName*
+     */
+    @Test
+    void statusAndName() {
+        this.assertUsesIndex("idx_user_status_name",
+                () -> userRepository.findUserByStatusAndNameUsingJPQL(1, "zhangsan"), 1, "zhangsan");
+    }
+
+    /**
+     * findUserByNameListUsingJPQL、updateUserSetStatusForNamesUsingJPQL
+     */
+    @Test
+    void nameList() {
+        this.assertUsesIndex("idx_user_name",
+                () -> userRepository.findUserByNameListUsingJPQL(Arrays.asList("zhangsan", "lisi")), "zhangsan", "lisi");
+        this.assertUsesIndex("idx_user_name",
+                () -> userRepository.updateUserSetStatusForNamesUsingJPQL(0, Arrays.asList("zhangsan", "lisi")),
+                0, "zhangsan", "lisi");
+    }
+
+    /**
+     * updateUserSetStatusForNameUsingJPQL
+     * batchUpdateUserSetStatusForName 通过 JdbcTemplate 执行相同条件的 SQL，不经过 Hibernate
+     */
+    @Test
+    void updateByName() {
+        this.assertUsesIndex("idx_user_name",
+                () -> userRepository.updateUserSetStatusForNameUsingJPQL(0, "zhangsan"), 0, "zhangsan");
+        this.assertUsesIndex("idx_user_name", "UPDATE user u SET status = ? WHERE u.name = ?", 0, "zhangsan");
+    }
+
+    /**
+     * findUserByEmailsUsingIndexedCriteria：依次执行精确匹配(IN)及前缀(范围)两条查询
+     */
+    @Test
+    void email() {
+        List<String> statements = this.capture(() -> userRepository.findUserByEmailsUsingIndexedCriteria(
+                new LinkedHashSet<>(Arrays.asList("123@123.com", "456%"))));
+        Assertions.assertEquals(statements.size(), 2);
+        this.assertUsesIndex("idx_user_email", statements.get(0), "123@123.com");
+        this.assertUsesIndex("idx_user_email", statements.get(1), "456", "457");
+    }
+
+    /**
+     * UserSort：按登记的排序键分页查询时，按索引顺序读取，不再单独排序
+     * (id 为 bigint 主键，H2 直接以其作为行键顺序存储，执行计划中不显示主键索引名)
+     */
+    @Test
+    void sort() {
+        for (String key : new String[]{"name", "nameLength"}) {
+            String sql = this.capture(() -> userRepository.findAll(PageRequest.of(0, 20, UserSort.of(key)))).get(0);
+            String plan = this.explain(sql, 20);
+            Assertions.assertTrue(plan.toUpperCase().contains("." + UserSort.index(key).toUpperCase()), sql + "\n" + plan);
+            Assertions.assertTrue(plan.contains("index sorted"), sql + "\n" + plan);
+        }
+    }
+}
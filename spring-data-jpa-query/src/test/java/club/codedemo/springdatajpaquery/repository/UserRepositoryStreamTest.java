@@ -0,0 +1,70 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 流式查询的内存测试
+ * 该测试在单独的 surefire 执行(memory-test)中以 -Xmx128m 运行，一次性加载一百万个用户会导致内存溢出；
+ * 使用文件数据库，避免测试数据本身占满堆内存
+ */
+@Tag("memory")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/stream-test;LAZY_QUERY_EXECUTION=1")
+class UserRepositoryStreamTest {
+
+    private static final int USER_COUNT = 1_000_000;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * 生成一百万个用户，其中一半为激活用户
+     */
+    private void generateUsers() {
+        jdbcTemplate.update("INSERT INTO user (name, status, email) " +
+                "SELECT CONCAT('user', X), MOD(X, 2), CONCAT('user', X, '@codedemo.club') FROM SYSTEM_RANGE(1, ?)", USER_COUNT);
+    }
+
+    @Test
+    @Transactional
+    void forEachUserUsingStream() {
+        this.generateUsers();
+        AtomicLong emails = new AtomicLong();
+        long count = userRepository.forEachUserUsingStream(user -> emails.addAndGet(user.getEmail().length()));
+        Assertions.assertEquals(count, USER_COUNT + 5);
+        Assertions.assertTrue(emails.get() > 0);
+    }
+
+    @Test
+    @Transactional
+    void streamUserByStatusUsingNative() {
+        this.generateUsers();
+        AtomicLong count = new AtomicLong();
+        try (Stream<User> users = userRepository.streamUserByStatusUsingNative(1)) {
+            // Stream 中处理完的实体需要调用方自行分离
+            users.forEach(user -> {
+                Assertions.assertEquals(user.getStatus(), 1);
+                entityManager.detach(user);
+                count.incrementAndGet();
+            });
+        }
+        Assertions.assertEquals(count.get(), USER_COUNT / 2 + 2);
+    }
+}
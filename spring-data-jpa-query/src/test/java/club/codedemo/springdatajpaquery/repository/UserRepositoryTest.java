@@ -1,19 +1,32 @@
 package club.codedemo.springdatajpaquery.repository;
 
 import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummary;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
 import org.assertj.core.util.Lists;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SpringBootTest
 class UserRepositoryTest {
@@ -21,6 +34,9 @@ class UserRepositoryTest {
     @Autowired
     UserRepository userRepository;
 
+    @PersistenceContext
+    EntityManager entityManager;
+
     /**
      * 2.1 JPQL 查询
      * 方法作用：获取所有激活用户
@@ -43,6 +59,18 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.size(), 2);
     }
 
+    /**
+     * 2.3 JPQL 流式查询
+     * 方法作用：以 Stream 的形式逐条获取所有激活用户
+     */
+    @Test
+    @Transactional
+    void streamAllActiveUsersUsingJPQL() {
+        try (Stream<User> users = this.userRepository.streamAllActiveUsersUsingJPQL()) {
+            Assertions.assertEquals(users.count(), 2);
+        }
+    }
+
     /**
      * 3.1 使用JPA内置方法 进行Sort()排序操作
      * 方法作用： 按对象的"名称"属性音序排序
@@ -128,6 +156,35 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.get(4).getName(), "zhangsan");
     }
 
+    /**
+     * 3.4 JPQL Sort排序 流式查询
+     * 方法作用： 以 Stream 的形式按"名称"的音序获取全部用户
+     */
+    @Test
+    @Transactional
+    void streamAllUsersSortUsingJPQL() {
+        try (Stream<User> users = userRepository.streamAllUsersSortUsingJPQL(Sort.by("name"))) {
+            List<String> names = users.map(User::getName).collect(Collectors.toList());
+            Assertions.assertEquals(names.size(), 5);
+            Assertions.assertEquals(names.get(0), "lisi");
+            Assertions.assertEquals(names.get(4), "zhaoliu");
+        }
+    }
+
+    /**
+     * 3.5 JPQL DTO投影 进行Sort()排序操作
+     * 方法作用： 按"名称"的音序获取全部用户的摘要
+     */
+    @Test
+    @Transactional
+    void findAllUserSummariesSortUsingJPQL() {
+        List<UserSummaryDto> users = userRepository.findAllUserSummariesSortUsingJPQL(Sort.by("name"));
+        Assertions.assertEquals(users.size(), 5);
+        Assertions.assertEquals(users.get(0).getName(), "lisi");
+        Assertions.assertEquals(users.get(0).getId(), 2L);
+        Assertions.assertEquals(users.get(4).getName(), "zhaoliu");
+    }
+
     /**
      * 3.3 Native原生查询 进行Sort()排序操作
      * 方法作用： 按对象的"Name"属性音序排序
@@ -187,6 +244,72 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.getContent().get(1).getName(), "lisi");
     }
 
+    /**
+     * 4.6 Native 分页 不统计总数
+     * 方法作用：获取全部用户，并按传入的Pageable进行分页
+     */
+    @Test
+    @Transactional
+    void findAllUsersWithSliceUsingNative() {
+        Slice<User> users = userRepository.findAllUsersWithSliceUsingNative(PageRequest.of(0, 2));
+        Assertions.assertEquals(users.getNumberOfElements(), 2);
+        Assertions.assertTrue(users.hasNext());
+        Assertions.assertEquals(users.getContent().get(0).getName(), "zhangsan");
+        Assertions.assertEquals(users.getContent().get(1).getName(), "lisi");
+
+        users = userRepository.findAllUsersWithSliceUsingNative(PageRequest.of(2, 2));
+        Assertions.assertEquals(users.getNumberOfElements(), 1);
+        Assertions.assertFalse(users.hasNext());
+        Assertions.assertEquals(users.getContent().get(0).getName(), "sunqi");
+    }
+
+    /**
+     * 4.4 JPQL 键集(Keyset)分页
+     * 方法作用：获取 id 大于给定值的用户，按 id 升序分页
+     */
+    @Test
+    @Transactional
+    void findAllUsersAfterIdUsingJPQL() {
+        Slice<User> users = userRepository.findAllUsersAfterIdUsingJPQL(0L, PageRequest.of(0, 2));
+        Assertions.assertEquals(users.getNumberOfElements(), 2);
+        Assertions.assertTrue(users.hasNext());
+        Assertions.assertEquals(users.getContent().get(0).getName(), "zhangsan");
+        Assertions.assertEquals(users.getContent().get(1).getName(), "lisi");
+
+        users = userRepository.findAllUsersAfterIdUsingJPQL(4L, PageRequest.of(0, 2));
+        Assertions.assertEquals(users.getNumberOfElements(), 1);
+        Assertions.assertFalse(users.hasNext());
+        Assertions.assertEquals(users.getContent().get(0).getName(), "sunqi");
+    }
+
+    /**
+     * 4.5 基于续页令牌的键集分页
+     * 方法作用：使用上一页返回的续页令牌依次获取全部用户
+     */
+    @Test
+    @Transactional
+    void findAllUsersWithKeysetUsingJPQL() {
+        KeysetSlice<User> users = userRepository.findAllUsersWithKeysetUsingJPQL(null, 2);
+        Assertions.assertEquals(users.getContent().get(0).getName(), "zhangsan");
+        Assertions.assertEquals(users.getContent().get(1).getName(), "lisi");
+        Assertions.assertNotNull(users.getContinuationToken());
+
+        users = userRepository.findAllUsersWithKeysetUsingJPQL(users.getContinuationToken(), 2);
+        Assertions.assertEquals(users.getContent().get(0).getName(), "wangwu");
+        Assertions.assertEquals(users.getContent().get(1).getName(), "zhaoliu");
+
+        users = userRepository.findAllUsersWithKeysetUsingJPQL(users.getContinuationToken(), 2);
+        Assertions.assertEquals(users.getNumberOfElements(), 1);
+        Assertions.assertEquals(users.getContent().get(0).getName(), "sunqi");
+        Assertions.assertFalse(users.hasNext());
+        Assertions.assertNull(users.getContinuationToken());
+
+        // 不合法的令牌：仓库抛出的 IllegalArgumentException 经 Spring 转换为 InvalidDataAccessApiUsageException
+        InvalidDataAccessApiUsageException exception = Assertions.assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> userRepository.findAllUsersWithKeysetUsingJPQL("not-a-token", 2));
+        Assertions.assertTrue(exception.getCause() instanceof IllegalArgumentException);
+    }
+
     /**
      * 5.1 JPQL 索引参数查询 单参数
      * 方法作用： 根据条件Status查询用户
@@ -206,6 +329,20 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.get(2).getName(), "sunqi");
     }
 
+    /**
+     * 5.4 JPQL 接口投影
+     * 方法作用： 根据条件Status查询用户摘要，结果不会进入持久化上下文
+     */
+    @Test
+    @Transactional
+    void findUserSummaryByStatusUsingJPQL() {
+        List<UserSummary> users = userRepository.findUserSummaryByStatusUsingJPQL(1);
+        Assertions.assertEquals(users.size(), 2);
+        Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+        Assertions.assertEquals(users.get(1).getName(), "wangwu");
+        Assertions.assertEquals(entityManager.unwrap(Session.class).getStatistics().getEntityCount(), 0);
+    }
+
     /**
      * 5.1 JPQL 索引参数查询 多参数
      * 方法作用： 根据条件Status和Name查询用户
@@ -244,6 +381,18 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.get(2).getName(), "sunqi");
     }
 
+    /**
+     * 5.3 Native 索引参数查询 流式查询
+     * 方法作用：以 Stream 的形式获取状态 == 参数 的所有用户
+     */
+    @Test
+    @Transactional
+    void streamUserByStatusUsingNative() {
+        try (Stream<User> users = userRepository.streamUserByStatusUsingNative(0)) {
+            Assertions.assertEquals(users.count(), 3);
+        }
+    }
+
     /**
      * 6.1 JPQL 命名参数查询 多参数
      * 方法作用：根据条件Status和Name查询用户
@@ -326,6 +475,54 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.get(0).getName(), "lisi");
     }
 
+    /**
+     * 7.1 按 id 批量获取
+     * 方法作用：按补齐后的块分批查询，已在持久化上下文中的用户不再查询，结果按传入顺序排列
+     */
+    @Test
+    @Transactional
+    void findUsersByIdsUsingMultiLoad() {
+        User loaded = entityManager.find(User.class, 2L);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 3000; id > 0; id--) {
+            ids.add(id);
+        }
+        ids.add(3L);
+
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        long prepared = statistics.getPrepareStatementCount();
+        Map<Long, User> users = userRepository.findUsersByIdsUsingMultiLoad(ids);
+
+        // 2999 个待查询的 id 分为 6 块(5 块 512，439 补齐到 512)
+        Assertions.assertTrue(statistics.getPrepareStatementCount() - prepared <= 6);
+        Assertions.assertEquals(new ArrayList<>(users.keySet()), Lists.newArrayList(5L, 4L, 3L, 2L, 1L));
+        Assertions.assertSame(users.get(2L), loaded);
+        Assertions.assertEquals(users.get(1L).getName(), "zhangsan");
+
+        Assertions.assertTrue(userRepository.findUsersByIdsUsingMultiLoad(Lists.newArrayList()).isEmpty());
+    }
+
+    /**
+     * 7.2 按姓名批量获取
+     * 方法作用：按补齐后的块分批查询，结果按传入顺序排列，不存在的姓名不出现在结果中
+     */
+    @Test
+    @Transactional
+    void findUsersByNamesUsingChunks() {
+        List<String> names = new ArrayList<>();
+        names.add("wangwu");
+        for (int i = 0; i < 2000; i++) {
+            names.add("nobody" + i);
+        }
+        names.add("zhangsan");
+        names.add("wangwu");
+
+        Map<String, List<User>> users = userRepository.findUsersByNamesUsingChunks(names);
+        Assertions.assertEquals(new ArrayList<>(users.keySet()), Lists.newArrayList("wangwu", "zhangsan"));
+        Assertions.assertEquals(users.get("wangwu").size(), 1);
+        Assertions.assertEquals(users.get("zhangsan").get(0).getId(), 1L);
+    }
+
     /**
      * 8.1 JPQL 执行更新操作
      * 方法作用：按 姓名 查找，更新用户的 状态
@@ -383,6 +580,88 @@ class UserRepositoryTest {
         Assertions.assertEquals(users.get(1).getName(), "liuba");
     }
 
+    /**
+     * 10.2 JDBC 批量插入
+     * 方法作用：批量插入用户，id 由序列按块分配
+     */
+    @Test
+    @Transactional
+    void batchInsertUsers() {
+        List<User> newUsers = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            User user = new User();
+            user.setName("batch" + i);
+            user.setStatus(i % 2);
+            user.setEmail("batch" + i + "@codedemo.club");
+            newUsers.add(user);
+        }
+        long count = userRepository.batchInsertUsers(newUsers.iterator(), 500, 1000);
+        Assertions.assertEquals(count, 1200);
+        Assertions.assertEquals(userRepository.count(), 1205);
+        // id 已回写，且与已有数据及彼此之间都不重复
+        Assertions.assertEquals(newUsers.stream().map(User::getId).filter(id -> id > 5).distinct().count(), 1200);
+        Assertions.assertEquals(userRepository.findUserByStatusAndNameUsingJPQL(1, "batch1").size(), 1);
+
+        // 批量插入之后，native 插入与 save 分配的 id 也不会冲突
+        userRepository.insertUserUsingNative("liuba", 13, "123456@123456.com");
+        User user = new User();
+        user.setName("qianjiu");
+        userRepository.saveAndFlush(user);
+        Assertions.assertEquals(userRepository.count(), 1207);
+    }
+
+    /**
+     * 10.3 JDBC 批量更新
+     * 方法作用：按 姓名 查找，批量更新用户的 状态
+     */
+    @Test
+    @Transactional
+    void batchUpdateUserSetStatusForName() {
+        // 尚未刷新的修改先于 JDBC 批处理写入；批处理后持久化上下文被清空，重新加载时读到更新后的状态
+        User zhangsan = entityManager.find(User.class, 1L);
+        zhangsan.setEmail("flushed@zhangsan.com");
+
+        Map<String, Integer> statusByName = new LinkedHashMap<>();
+        statusByName.put("zhangsan", 0);
+        statusByName.put("lisi", 1);
+        statusByName.put("liuba", 1);
+        int[] counts = userRepository.batchUpdateUserSetStatusForName(statusByName, 2);
+        Assertions.assertArrayEquals(counts, new int[]{2, 0});
+
+        Assertions.assertFalse(entityManager.contains(zhangsan));
+        User reloaded = entityManager.find(User.class, 1L);
+        Assertions.assertEquals(0, reloaded.getStatus());
+        Assertions.assertEquals("flushed@zhangsan.com", reloaded.getEmail());
+
+        Assertions.assertEquals(userRepository.findUserByStatusAndNameUsingJPQL(0, "zhangsan").size(), 1);
+        Assertions.assertEquals(userRepository.findUserByStatusAndNameUsingJPQL(1, "lisi").size(), 1);
+    }
+
+    /**
+     * 10.4 JPQL 分块更新
+     * 方法作用：按 姓名集合 查找，统一更新用户的 状态
+     */
+    @Test
+    @Transactional
+    void updateUserSetStatusForNamesUsingJPQL() {
+        // 空集合，不执行任何更新
+        Assertions.assertEquals(userRepository.updateUserSetStatusForNamesUsingJPQL(1, Lists.newArrayList()).length, 0);
+
+        int[] counts = userRepository.updateUserSetStatusForNamesUsingJPQL(1, Lists.newArrayList("lisi", "zhaoliu", "liuba"));
+        Assertions.assertArrayEquals(counts, new int[]{2});
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 4);
+
+        // 超过单个 IN 列表上限时拆分为多块
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            names.add("user" + i);
+        }
+        names.add("sunqi");
+        counts = userRepository.updateUserSetStatusForNamesUsingJPQL(1, names);
+        Assertions.assertArrayEquals(counts, new int[]{0, 0, 1});
+        Assertions.assertEquals(userRepository.findUserByStatusUsingJPQL(1).size(), 5);
+    }
+
     /**
      * 9.4 调用动态查询方法
      * 方法作用: 集合查询，传入一个邮箱集合，查询数据表中属于给定集合的所有用户的列表
@@ -405,5 +684,61 @@ class UserRepositoryTest {
         users = userRepository.findUserByEmailsUsingCriteria(emails);
         Assertions.assertEquals(users.size(), 1);
         Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+
+        // 超过单条语句的参数上限时分块查询，同时匹配多个块中模式的用户只返回一次
+        Set<String> many = new LinkedHashSet<>();
+        many.add("123@123.com");
+        for (int i = 0; i < QueryParameterChunks.MAX_IN_CLAUSE_SIZE; i++) {
+            many.add("nobody" + i + "@test.com");
+        }
+        many.add("123%");
+        users = userRepository.findUserByEmailsUsingCriteria(many);
+        Assertions.assertEquals(2, users.size());
+    }
+
+    /**
+     * 9.4 调用动态查询方法 可利用索引的写法
+     * 方法作用: 集合查询，传入一个邮箱集合，查询数据表中属于给定集合的所有用户的列表
+     */
+    @Transactional
+    @Test
+    void findUserByEmailsUsingIndexedCriteria() {
+        Set<String> emails = new HashSet<>();
+        // 空数组，断言结果为空
+        List<User> users = userRepository.findUserByEmailsUsingIndexedCriteria(emails);
+        Assertions.assertEquals(users.size(), 0);
+
+        // 精确匹配：一个有用数据和一个无用数据
+        emails.add("test@test.com");
+        emails.add("123@123.com");
+        users = userRepository.findUserByEmailsUsingIndexedCriteria(emails);
+        Assertions.assertEquals(users.size(), 1);
+        Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+
+        // 前缀匹配：123%同时匹配 123@123.com 及 1234@1234.com，但 zhangsan 只返回一次
+        emails.add("123%");
+        users = userRepository.findUserByEmailsUsingIndexedCriteria(emails);
+        Assertions.assertEquals(users.size(), 2);
+
+        // 其它通配符写法
+        emails.add("%@5678.com");
+        emails.add("7_9@789.com");
+        users = userRepository.findUserByEmailsUsingIndexedCriteria(emails);
+        Assertions.assertEquals(users.size(), 4);
+        Assertions.assertEquals(users.size(), userRepository.findUserByEmailsUsingCriteria(emails).size());
+    }
+
+    /**
+     * 9.5 流式遍历全部用户
+     * 方法作用：逐条处理全部用户，处理完的实体不再由持久化上下文管理
+     */
+    @Transactional
+    @Test
+    void forEachUserUsingStream() {
+        List<User> users = new ArrayList<>();
+        long count = userRepository.forEachUserUsingStream(users::add);
+        Assertions.assertEquals(count, 5);
+        Assertions.assertEquals(users.get(0).getName(), "zhangsan");
+        Assertions.assertFalse(entityManager.contains(users.get(0)));
     }
-}
\ No newline at end of file
+}
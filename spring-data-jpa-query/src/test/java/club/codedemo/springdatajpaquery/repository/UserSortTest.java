@@ -0,0 +1,79 @@
+package club.codedemo.springdatajpaquery.repository;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.projection.UserSummaryDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@SpringBootTest
+class UserSortTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    /**
+     * 按姓名长度排序，无需 JpaSort.unsafe
+     */
+    @Test
+    @Transactional
+    void sortByNameLength() {
+        List<User> users = userRepository.findAllUsersSortUsingJPQL(UserSort.of("nameLength"));
+        Assertions.assertEquals(users.size(), 5);
+        Assertions.assertEquals(users.get(0).getName(), "lisi");
+        Assertions.assertEquals(users.get(1).getName(), "sunqi");
+        Assertions.assertEquals(users.get(2).getName(), "wangwu");
+        Assertions.assertEquals(users.get(3).getName(), "zhaoliu");
+        Assertions.assertEquals(users.get(4).getName(), "zhangsan");
+
+        List<UserSummaryDto> summaries = userRepository.findAllUserSummariesSortUsingJPQL(
+                UserSort.of("nameLength", Sort.Direction.DESC));
+        Assertions.assertEquals(summaries.get(0).getName(), "zhangsan");
+    }
+
+    /**
+     * 计算列随 name 的修改而更新
+     */
+    @Test
+    @Transactional
+    void nameLengthFollowsName() {
+        User user = userRepository.findById(1L).get();
+        user.setName("a");
+        userRepository.saveAndFlush(user);
+
+        List<User> users = userRepository.findAllUsersSortUsingJPQL(UserSort.of("nameLength"));
+        Assertions.assertEquals(users.get(0).getId(), 1L);
+    }
+
+    @Test
+    @Transactional
+    void fromRequestedSort() {
+        Sort sort = UserSort.from(Sort.by(Sort.Order.desc("nameLength"), Sort.Order.asc("id")));
+        Page<User> users = userRepository.findAll(PageRequest.of(0, 2, sort));
+        Assertions.assertEquals(users.getContent().get(0).getName(), "zhangsan");
+        Assertions.assertEquals(users.getContent().get(1).getName(), "zhaoliu");
+
+        Assertions.assertTrue(UserSort.from(Sort.unsorted()).isUnsorted());
+    }
+
+    /**
+     * 未登记的排序键及表达式一律拒绝
+     */
+    @Test
+    void rejectsUnknownKeys() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UserSort.of("LENGTH(name)"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UserSort.of("email"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> UserSort.from(Sort.by("name; drop table user")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> UserSort.from(Sort.by(Sort.Order.asc("name").ignoreCase())));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UserSort.index("status"));
+    }
+}
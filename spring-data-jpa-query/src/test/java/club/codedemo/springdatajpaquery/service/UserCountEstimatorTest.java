@@ -0,0 +1,51 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class UserCountEstimatorTest {
+
+    @Autowired
+    UserCountEstimator userCountEstimator;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * cached 模式：返回后台刷新的总数
+     */
+    @Test
+    void cachedEstimate() {
+        userCountEstimator.refresh();
+        Assertions.assertEquals(userCountEstimator.estimate(), 5);
+
+        Page<User> users = userCountEstimator.findAllUsersWithApproximateCount(PageRequest.of(0, 2));
+        Assertions.assertEquals(users.getTotalElements(), 5);
+        Assertions.assertEquals(users.getTotalPages(), 3);
+        Assertions.assertEquals(users.getContent().get(0).getName(), "zhangsan");
+    }
+
+    /**
+     * statistics 模式：读取 H2 的表统计信息
+     */
+    @Test
+    void statisticsEstimate() {
+        UserCountEstimator estimator = new UserCountEstimator(userRepository, jdbcTemplate, "statistics");
+        Assertions.assertTrue(estimator.estimate() > 0);
+
+        // 统计值偏小时，以当前页已确定的记录数为准
+        Page<User> users = estimator.findAllUsersWithApproximateCount(PageRequest.of(2, 2));
+        Assertions.assertTrue(users.getTotalElements() >= 5);
+    }
+}
@@ -0,0 +1,88 @@
+package club.codedemo.springdatajpaquery.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+
+/**
+ * 导出的内存测试
+ * 与 UserRepositoryStreamTest 相同，在 memory-test 中以 -Xmx128m 运行：五百万个用户一次性加载到内存中会导致内存溢出，
+ * 逐行导出则不受用户数影响；导出的内容只计数、不保存
+ */
+@Tag("memory")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/export-test;LAZY_QUERY_EXECUTION=1")
+class UserExportServiceTest {
+
+    private static final int USER_COUNT = 5_000_000;
+
+    private static final int INSERT_BATCH_SIZE = 500_000;
+
+    @Autowired
+    UserExportService userExportService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * 分批生成五百万个用户，每批单独提交
+     */
+    @BeforeAll
+    void generateUsers() {
+        for (int from = 1; from <= USER_COUNT; from += INSERT_BATCH_SIZE) {
+            jdbcTemplate.update("INSERT INTO user (name, status, email) " +
+                            "SELECT CONCAT('user', X), MOD(X, 2), CONCAT('user', X, '@codedemo.club') FROM SYSTEM_RANGE(?, ?)",
+                    from, from + INSERT_BATCH_SIZE - 1);
+        }
+    }
+
+    @Test
+    void exportCsv() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        long count = userExportService.export(UserExportService.Format.CSV, outputStream);
+        Assertions.assertEquals(count, USER_COUNT + 5);
+        // 每行至少包含 id、姓名、状态、邮箱及分隔符
+        Assertions.assertTrue(outputStream.bytes > count * 20);
+        Assertions.assertEquals(outputStream.lines, count + 1);
+    }
+
+    @Test
+    void exportJson() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        long count = userExportService.export(UserExportService.Format.JSON, outputStream);
+        Assertions.assertEquals(count, USER_COUNT + 5);
+        Assertions.assertTrue(outputStream.bytes > count * 50);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        long bytes;
+
+        long lines;
+
+        @Override
+        public void write(int b) {
+            this.bytes++;
+            if (b == '\n') {
+                this.lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    this.lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 使用独立的内嵌数据库，避免生成的用户影响其它测试
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:scan-test;DB_CLOSE_DELAY=-1",
+        "codedemo.user-scan.page-size=100"})
+class UserPartitionedScannerTest {
+
+    private static final int USER_COUNT = 10_000;
+
+    @Autowired
+    UserPartitionedScanner userPartitionedScanner;
+
+    @Autowired
+    UserScanCheckpoints userScanCheckpoints;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void generateUsers() {
+        jdbcTemplate.update("INSERT INTO user (name, status, email) " +
+                "SELECT CONCAT('user', X), MOD(X, 2), CONCAT('user', X, '@codedemo.club') FROM SYSTEM_RANGE(1, ?)", USER_COUNT);
+    }
+
+    /**
+     * 每个用户恰好处理一次，由多个线程并行处理
+     */
+    @Test
+    void scan() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        UserScanProgress progress = userPartitionedScanner.scan("scan", 4, users -> {
+            threads.add(Thread.currentThread().getName());
+            for (User user : users) {
+                Assertions.assertTrue(ids.add(user.getId()));
+            }
+        });
+
+        Assertions.assertEquals(ids.size(), USER_COUNT + 5);
+        Assertions.assertEquals(progress.getProcessedUsers(), USER_COUNT + 5);
+        Assertions.assertEquals(progress.getPartitions(), 16);
+        Assertions.assertEquals(progress.getCompletedPartitions(), 16);
+        Assertions.assertTrue(threads.size() > 1);
+        Assertions.assertTrue(userScanCheckpoints.findPartitions("scan").isEmpty());
+    }
+
+    /**
+     * 处理失败后以相同的任务名重新扫描，从检查点继续，已处理的页不再处理
+     */
+    @Test
+    void resume() {
+        long failingId = jdbcTemplate.queryForObject("SELECT id FROM user WHERE name = 'user5000'", Long.class);
+        Set<Long> first = ConcurrentHashMap.newKeySet();
+        Assertions.assertThrows(IllegalStateException.class, () -> userPartitionedScanner.scan("resume", 4, users -> {
+            if (users.stream().anyMatch(user -> user.getId() == failingId)) {
+                throw new IllegalArgumentException("invalid user " + failingId);
+            }
+            users.forEach(user -> first.add(user.getId()));
+        }));
+        Assertions.assertFalse(userScanCheckpoints.findPartitions("resume").isEmpty());
+        Assertions.assertFalse(first.contains(failingId));
+
+        Set<Long> second = ConcurrentHashMap.newKeySet();
+        userPartitionedScanner.scan("resume", 4, users -> users.forEach(user -> second.add(user.getId())));
+
+        Set<Long> all = new HashSet<>(first);
+        all.addAll(second);
+        Assertions.assertEquals(all.size(), first.size() + second.size());
+        Assertions.assertEquals(all.size(), USER_COUNT + 5);
+        Assertions.assertTrue(second.contains(failingId));
+        Assertions.assertTrue(userScanCheckpoints.findPartitions("resume").isEmpty());
+    }
+
+    /**
+     * 线程数不超过连接池大小(默认10)减去预留的连接数(2)
+     */
+    @Test
+    void parallelism() {
+        Assertions.assertEquals(userPartitionedScanner.getDefaultParallelism(), 8);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        userPartitionedScanner.scan("parallelism", 100, users -> threads.add(Thread.currentThread().getName()));
+        Assertions.assertTrue(threads.size() <= 8);
+    }
+}
@@ -0,0 +1,125 @@
+package club.codedemo.springdatajpaquery.service;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@SpringBootTest
+class UserRepositoryAsyncTest {
+
+    @Autowired
+    UserRepositoryAsync userRepositoryAsync;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void poolSizeMatchesConnectionPool() throws Exception {
+        Assertions.assertEquals(userRepositoryAsync.getPoolSize(),
+                dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+    }
+
+    @Test
+    void queries() throws Exception {
+        CompletableFuture<Collection<User>> active = userRepositoryAsync.findAllActiveUsersUsingJPQL();
+        CompletableFuture<List<User>> byName = userRepositoryAsync.findUserByNameListUsingJPQL(Arrays.asList("zhangsan", "lisi"));
+        CompletableFuture<String> thread = userRepositoryAsync.submit(userRepository -> Thread.currentThread().getName());
+
+        Assertions.assertEquals(active.get().size(), 2);
+        Assertions.assertEquals(byName.get().size(), 2);
+        Assertions.assertTrue(thread.get().startsWith("user-repository-"));
+        Assertions.assertEquals(userRepositoryAsync.findById(1L).get().get().getName(), "zhangsan");
+    }
+
+    /**
+     * 线程及队列均已占满时，新任务立即失败，不会阻塞调用线程
+     */
+    @Test
+    void rejectsWhenSaturated() throws Exception {
+        UserRepositoryAsync async = new UserRepositoryAsync(userRepository, dataSource, 1, 1, false);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = async.submit(userRepository -> await(latch));
+            CompletableFuture<Boolean> queued = async.submit(userRepository -> await(latch));
+            CompletableFuture<Boolean> rejected = async.submit(userRepository -> await(latch));
+
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, rejected::get);
+            Assertions.assertTrue(e.getCause() instanceof TaskRejectedException);
+
+            latch.countDown();
+            Assertions.assertTrue(running.get());
+            Assertions.assertTrue(queued.get());
+        } finally {
+            latch.countDown();
+            async.destroy();
+        }
+    }
+
+    /**
+     * 当前 JVM 不支持虚拟线程时退回平台线程
+     */
+    @Test
+    void virtualThreads() throws Exception {
+        UserRepositoryAsync async = new UserRepositoryAsync(userRepository, dataSource, 2, 10, true);
+        try {
+            Assertions.assertEquals(async.findUserByStatusAndNameUsingJPQL(1, "zhangsan").get().size(), 1);
+        } finally {
+            async.destroy();
+        }
+    }
+
+    /**
+     * 虚拟线程模式的限制：以平台线程的 thread-per-task 执行器代替虚拟线程，
+     * 1 个任务执行、1 个任务等待许可时，第3个任务在提交时即被拒绝
+     */
+    @Test
+    void boundedExecutorRejectsWhenSaturated() throws Exception {
+        ExecutorService threadPerTask = Executors.newCachedThreadPool();
+        Executor executor = UserRepositoryAsync.boundedExecutor(threadPerTask, 1, 1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> await(latch), executor);
+            CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> await(latch), executor);
+            Assertions.assertThrows(TaskRejectedException.class,
+                    () -> CompletableFuture.supplyAsync(() -> await(latch), executor));
+
+            latch.countDown();
+            Assertions.assertTrue(running.get());
+            Assertions.assertTrue(waiting.get());
+            // 许可归还后可以继续提交
+            Assertions.assertTrue(CompletableFuture.supplyAsync(() -> await(latch), executor).get());
+        } finally {
+            latch.countDown();
+            threadPerTask.shutdown();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            latch.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import club.codedemo.springdatajpaquery.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 构建时校验仓库中的全部 @Query 语句，语句错误时构建失败，而不是等到运行时第一次调用才发现
+ */
+@SpringBootTest
+class RepositoryQueryValidatorTest {
+
+    @Autowired
+    RepositoryQueryValidator repositoryQueryValidator;
+
+    @Test
+    void repositories() {
+        for (Class<?> repository : StartupConfig.REPOSITORIES) {
+            Assertions.assertEquals(repositoryQueryValidator.validate(repository), Collections.emptyList(),
+                    repository.getSimpleName());
+        }
+    }
+
+    @Test
+    void invalidQueries() {
+        List<String> errors = repositoryQueryValidator.validate(InvalidQueries.class);
+        Assertions.assertEquals(3, errors.size());
+        Assertions.assertTrue(errors.get(0).startsWith("InvalidQueries.findByUnknownColumnUsingNative"));
+        Assertions.assertTrue(errors.get(1).startsWith("InvalidQueries.findByUnknownPropertyUsingJPQL"));
+        Assertions.assertTrue(errors.get(2).startsWith("InvalidQueries.findPageUsingJPQL (count)"));
+    }
+
+    /**
+     * 不继承 Repository，不会被 Spring Data 创建为仓库
+     */
+    interface InvalidQueries {
+
+        @Query("SELECT u FROM User u WHERE u.unknown = ?1")
+        List<User> findByUnknownPropertyUsingJPQL(Integer unknown);
+
+        @Query(value = "SELECT * FROM user WHERE no_such_column = :unknown", nativeQuery = true)
+        List<User> findByUnknownColumnUsingNative(Integer unknown);
+
+        @Query(value = "SELECT u FROM User u", countQuery = "SELECT count(u) FROM Unknown u")
+        List<User> findPageUsingJPQL();
+
+        @Query(value = "SELECT * FROM user WHERE status = ?1 AND name = :name", nativeQuery = true)
+        List<User> findValidUsingNative(Integer status, String name);
+    }
+}
@@ -0,0 +1,88 @@
+package club.codedemo.springdatajpaquery.startup;
+
+import club.codedemo.springdatajpaquery.SpringDataJpaQueryApplication;
+import club.codedemo.springdatajpaquery.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动耗时预算
+ * 分别以默认配置及 fast-startup 启动应用(不含 Web 层，使用独立的内嵌数据库)：
+ * 先启动一次预热(类加载、JIT)，再交替启动两种模式各 ROUNDS 次、取最小值，
+ * 启动耗时或第一次查询的耗时超出预算时测试失败。
+ * 两种模式之间的比较受机器负载影响，不在此断言，见 spring-data-jpa-query-benchmark 中的 StartupBenchmark
+ */
+class StartupBudgetTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupBudgetTest.class);
+
+    /**
+     * 预热后启动至就绪的预算：单核机器上两种模式实测 2.0~2.7 秒，预留约一倍的余量
+     */
+    static final long STARTUP_BUDGET_MILLIS = 5_500;
+
+    /**
+     * 预热后启动至第一次查询返回的预算：单核机器上两种模式实测 2.2~2.8 秒，预留约一倍的余量
+     */
+    static final long FIRST_QUERY_BUDGET_MILLIS = 6_000;
+
+    /**
+     * 每种模式启动的次数
+     */
+    static final int ROUNDS = 3;
+
+    @Test
+    void startupBudget() {
+        start("default");
+
+        long[] defaultMillis = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] fastStartupMillis = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int i = 0; i < ROUNDS; i++) {
+            min(defaultMillis, start("default"));
+            min(fastStartupMillis, start("fast-startup"));
+        }
+        logger.info("Startup: default ready in {} ms, first query in {} ms; fast-startup ready in {} ms, first query in {} ms",
+                defaultMillis[0], defaultMillis[1], fastStartupMillis[0], fastStartupMillis[1]);
+
+        for (long[] millis : new long[][]{defaultMillis, fastStartupMillis}) {
+            Assertions.assertTrue(millis[0] < STARTUP_BUDGET_MILLIS, "startup took " + millis[0] + " ms");
+            Assertions.assertTrue(millis[1] < FIRST_QUERY_BUDGET_MILLIS, "first query took " + millis[1] + " ms");
+        }
+    }
+
+    /**
+     * 以给定的 profile 启动应用并执行一次查询
+     * @return {启动至就绪的毫秒数, 启动至第一次查询返回的毫秒数}
+     */
+    private static long[] start(String profile) {
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringDataJpaQueryApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profile)
+                .properties("spring.datasource.url=jdbc:h2:mem:startup-" + profile + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run()) {
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertEquals("zhangsan", context.getBean(UserRepository.class).findById(1L).get().getName());
+            long firstQueryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            StartupTimingReporter reporter = context.getBean(StartupTimingReporter.class);
+            Assertions.assertTrue(reporter.getStartupMillis() > 0);
+            Assertions.assertTrue(reporter.getFirstQueryMillis() > 0);
+            return new long[]{startupMillis, firstQueryMillis};
+        }
+    }
+
+    private static void min(long[] min, long[] millis) {
+        for (int i = 0; i < min.length; i++) {
+            min[i] = Math.min(min[i], millis[i]);
+        }
+    }
+}